@@ -0,0 +1,86 @@
+package org.example.benchmarks;
+
+import org.apache.sshd.common.file.virtualfs.VirtualFileSystemFactory;
+import org.apache.sshd.server.SshServer;
+import org.apache.sshd.server.keyprovider.SimpleGeneratorHostKeyProvider;
+import org.apache.sshd.sftp.server.SftpSubsystemFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+// Встроенный SFTP-сервер на localhost для бенчмарков без внешней инфраструктуры
+public class EmbeddedSftpServer implements AutoCloseable {
+    public static final String USERNAME = "bench";
+    public static final String PASSWORD = "bench";
+    public static final String FILE_NAME = "addresses.json";
+
+    private final SshServer sshd;
+    private final Path root;
+
+    public EmbeddedSftpServer() throws IOException {
+        root = Files.createTempDirectory("sftp-bench");
+        sshd = SshServer.setUpDefaultServer();
+        sshd.setHost("127.0.0.1");
+        sshd.setPort(0);
+        sshd.setKeyPairProvider(new SimpleGeneratorHostKeyProvider());
+        sshd.setPasswordAuthenticator((username, password, session) ->
+                USERNAME.equals(username) && PASSWORD.equals(password));
+        sshd.setSubsystemFactories(Collections.singletonList(new SftpSubsystemFactory()));
+        sshd.setFileSystemFactory(new VirtualFileSystemFactory(root));
+        sshd.start();
+    }
+
+    public int getPort() {
+        return sshd.getPort();
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    // Запись файла с заданным числом пар: host-<i>.example.com -> 10.x.x.x
+    public Path writeAddresses(int entries) throws IOException {
+        Path file = root.resolve(FILE_NAME);
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("{\"addresses\":[");
+            for (int i = 0; i < entries; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writer.write("{\"domain\":\"" + domain(i) + "\",\"ip\":\"" + ip(i) + "\"}");
+            }
+            writer.write("]}");
+        }
+        return file;
+    }
+
+    // Изменение mtime, чтобы клиент посчитал файл измененным
+    public void touch() throws IOException {
+        Path file = root.resolve(FILE_NAME);
+        long mtime = Files.getLastModifiedTime(file).toMillis() + 1000;
+        Files.setLastModifiedTime(file, FileTime.fromMillis(mtime));
+    }
+
+    public static String domain(int i) {
+        return "host-" + i + ".example.com";
+    }
+
+    public static String ip(int i) {
+        int ip = 0x0A000000 + i;
+        return (ip >>> 24) + "." + ((ip >>> 16) & 0xFF) + "." + ((ip >>> 8) & 0xFF) + "." + (ip & 0xFF);
+    }
+
+    @Override
+    public void close() throws IOException {
+        sshd.stop(true);
+        try (Stream<Path> files = Files.walk(root)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
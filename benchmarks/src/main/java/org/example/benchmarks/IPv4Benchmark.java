@@ -0,0 +1,57 @@
+package org.example.benchmarks;
+
+import org.example.IPv4;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Сравнение однопроходного разбора IPv4 с прежними реализациями на регулярных выражениях
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IPv4Benchmark {
+
+    @Param({"192.168.0.1", "010.000.000.001", "256.1.1.1", "not.an.ip"})
+    public String ip;
+
+    // Прежняя проверка из SFTPClient.isValidIP
+    static boolean legacyIsValidIP(String ip) {
+        return ip.matches("^(25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)\\." +
+                "(25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)\\." +
+                "(25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)\\." +
+                "(25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)$");
+    }
+
+    // Прежняя нормализация из SFTPClient.normalizeIP (только для валидных адресов)
+    static String legacyNormalizeIP(String ip) {
+        String[] octets = ip.split("\\.");
+        StringBuilder normalizedIP = new StringBuilder();
+        for (String octet : octets) {
+            normalizedIP.append(Integer.parseInt(octet)).append(".");
+        }
+        return normalizedIP.substring(0, normalizedIP.length() - 1);
+    }
+
+    @Benchmark
+    public boolean validateLegacy() {
+        return legacyIsValidIP(ip);
+    }
+
+    @Benchmark
+    public boolean validateScanner() {
+        return IPv4.isValid(ip);
+    }
+
+    @Benchmark
+    public String validateAndNormalizeLegacy() {
+        return legacyIsValidIP(ip) ? legacyNormalizeIP(ip) : null;
+    }
+
+    @Benchmark
+    public long validateAndPackScanner() {
+        return IPv4.parse(ip);
+    }
+}
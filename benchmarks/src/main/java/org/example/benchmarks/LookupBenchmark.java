@@ -0,0 +1,43 @@
+package org.example.benchmarks;
+
+import org.example.SFTPClient;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Поиск по прогретому кэшу: с проверкой stat на каждый запрос (ttl=0) и без обращения к серверу
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class LookupBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class LookupState extends SftpBenchmarkState {
+        @Param({"0", "60000"})
+        public long cacheTtl;
+
+        int next;
+
+        @Override
+        protected void prepare() {
+            SFTPClient.setCacheTtl(cacheTtl);
+        }
+
+        int nextEntry() {
+            next = (next + 7919) % entries;
+            return next;
+        }
+    }
+
+    @Benchmark
+    public String getIPByDomain(LookupState state) throws Exception {
+        return SFTPClient.getIPByDomain(state.channelSftp, EmbeddedSftpServer.domain(state.nextEntry()));
+    }
+
+    @Benchmark
+    public String getDomainByIP(LookupState state) throws Exception {
+        return SFTPClient.getDomainByIP(state.channelSftp, EmbeddedSftpServer.ip(state.nextEntry()));
+    }
+}
@@ -0,0 +1,59 @@
+package org.example.benchmarks;
+
+import org.example.SFTPClient;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Изменения: добавление пары (дописывание перед концом массива без перезаписи файла),
+// удаление пары и полная перезапись файла (запись во временный файл и переименование)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class MutateBenchmark {
+
+    private static final String DOMAIN = "bench.example.org";
+    private static final String IP = "192.168.255.254";
+
+    @State(Scope.Benchmark)
+    public static class MutateState extends SftpBenchmarkState {
+    }
+
+    // Пара удаляется перед каждым вызовом вне замера, чтобы размер файла не рос
+    @State(Scope.Benchmark)
+    public static class AddState extends SftpBenchmarkState {
+        @Setup(Level.Invocation)
+        public void removePair() throws Exception {
+            SFTPClient.deletePair(channelSftp, DOMAIN);
+        }
+    }
+
+    // Пара добавляется перед каждым вызовом вне замера
+    @State(Scope.Benchmark)
+    public static class DeleteState extends SftpBenchmarkState {
+        @Setup(Level.Invocation)
+        public void addPair() throws Exception {
+            SFTPClient.addPair(channelSftp, DOMAIN, IP);
+        }
+    }
+
+    // добавление одной пары: дописывание на месте
+    @Benchmark
+    public void addPair(AddState state) throws Exception {
+        SFTPClient.addPair(state.channelSftp, DOMAIN, IP);
+    }
+
+    // удаление одной пары: полная перезапись файла
+    @Benchmark
+    public void deletePair(DeleteState state) throws Exception {
+        SFTPClient.deletePair(state.channelSftp, DOMAIN);
+    }
+
+    // полная перезапись: сериализация и выгрузка всего файла
+    @Benchmark
+    public void savePairs(MutateState state) throws Exception {
+        SFTPClient.compact(state.channelSftp);
+    }
+}
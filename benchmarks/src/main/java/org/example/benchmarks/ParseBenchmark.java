@@ -0,0 +1,49 @@
+package org.example.benchmarks;
+
+import org.example.AddressesJsonParser;
+import org.example.DomainIPIndex;
+import org.example.SFTPClient;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+// Разбор файла: только CPU (из памяти) и полная загрузка с сервера. Путь к файлу уже закэширован
+// после первого вызова, поэтому загрузка — это stat + get + разбор (без ls каталога)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class ParseBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class FileState extends SftpBenchmarkState {
+        byte[] content;
+
+        @Override
+        protected void prepare() throws IOException {
+            content = Files.readAllBytes(server.getRoot().resolve(EmbeddedSftpServer.FILE_NAME));
+        }
+
+        // каждый вызов видит измененный файл и загружает его заново
+        @Setup(Level.Invocation)
+        public void touchFile() throws IOException {
+            server.touch();
+        }
+    }
+
+    @Benchmark
+    public DomainIPIndex parseInMemory(FileState state) throws IOException {
+        DomainIPIndex.Builder builder = new DomainIPIndex.Builder();
+        AddressesJsonParser.parse(new ByteArrayInputStream(state.content), builder::add);
+        return builder.build();
+    }
+
+    @Benchmark
+    public String fetchAndParse(FileState state) throws Exception {
+        return SFTPClient.getIPByDomain(state.channelSftp, EmbeddedSftpServer.domain(0));
+    }
+}
@@ -0,0 +1,40 @@
+package org.example.benchmarks;
+
+import com.jcraft.jsch.ChannelSftp;
+import org.example.SFTPClient;
+import org.example.SFTPConnection;
+import org.openjdk.jmh.annotations.*;
+
+// Общее состояние бенчмарков: встроенный сервер, файл с заданным числом пар и подключение
+@State(Scope.Benchmark)
+public class SftpBenchmarkState {
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int entries;
+
+    protected EmbeddedSftpServer server;
+    protected SFTPConnection connection;
+    protected ChannelSftp channelSftp;
+
+    @Setup(Level.Trial)
+    public void startServer() throws Exception {
+        server = new EmbeddedSftpServer();
+        server.writeAddresses(entries);
+        connection = new SFTPConnection();
+        connection.connect("127.0.0.1", server.getPort(), EmbeddedSftpServer.USERNAME, EmbeddedSftpServer.PASSWORD);
+        channelSftp = connection.getChannelSftp();
+        // прогрев кэша индекса
+        SFTPClient.getIPByDomain(channelSftp, EmbeddedSftpServer.domain(0));
+        prepare();
+    }
+
+    // Дополнительная подготовка в наследниках после запуска сервера
+    protected void prepare() throws Exception {
+    }
+
+    @TearDown(Level.Trial)
+    public void stopServer() throws Exception {
+        connection.disconnect();
+        server.close();
+    }
+}
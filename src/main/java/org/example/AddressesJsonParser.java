@@ -0,0 +1,398 @@
+package org.example;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+// Потоковый разбор json-файла вида {"addresses":[{"domain":"...","ip":"..."}, ...]}
+// за один проход по байтам, без загрузки всего файла в память
+public class AddressesJsonParser {
+
+    // Получатель разобранных пар
+    public interface PairHandler {
+        void pair(String domain, String ip);
+    }
+
+    // Получатель пар вместе с расположением записи в файле: [start, end) в байтах
+    public interface LocatedPairHandler {
+        // false — пара не принята (например, невалидный IP), исходный текст записи передается в unparsed
+        boolean pair(String domain, String ip, long start, long end);
+
+        // Запись, не ставшая парой (нет domain или ip, или пара не принята), байт в байт как в файле
+        default void unparsed(byte[] record, long start, long end) {
+        }
+    }
+
+    // Сведения о структуре разобранного документа
+    public static class Document {
+        private final int records;
+        private final byte[] tail;
+        private final long size;
+
+        Document(int records, byte[] tail, long size) {
+            this.records = records;
+            this.tail = tail;
+            this.size = size;
+        }
+
+        // Число прочитанных байтов
+        public long getSize() {
+            return size;
+        }
+
+        // Число записей в массиве addresses, включая пропущенные из-за ошибок
+        public int getRecords() {
+            return records;
+        }
+
+        // Байты от закрывающей ']' массива addresses до конца файла; null, если массива нет или хвост слишком длинный
+        public byte[] getTail() {
+            return tail;
+        }
+    }
+
+    private static final int MAX_TAIL = 64 * 1024;
+
+    private static final int EOF = -1;
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[8192];
+    private int bufferPos;
+    private int bufferLimit;
+    private long position; // смещение следующего байта от начала файла
+    private int peeked = EOF - 1; // символ, прочитанный заранее (EOF - 1 — нет символа)
+    private int pendingLowSurrogate = EOF - 1;
+    private final StringBuilder chars = new StringBuilder(64); // переиспользуемый буфер строк
+    private int records;
+    private ByteArrayOutputStream tail; // накопление байтов после массива addresses
+    // байты текущей записи массива addresses, чтобы непринятую запись можно было сохранить без изменений
+    private boolean capture;
+    private byte[] record = new byte[256];
+    private int recordLength;
+
+    private AddressesJsonParser(InputStream in) {
+        this.in = in;
+    }
+
+    // Разбор потока; поток не закрывается
+    public static Document parse(InputStream in, PairHandler handler) throws IOException {
+        return parse(in, (domain, ip, start, end) -> {
+            handler.pair(domain, ip);
+            return true;
+        });
+    }
+
+    public static Document parse(InputStream in, LocatedPairHandler handler) throws IOException {
+        AddressesJsonParser parser = new AddressesJsonParser(in);
+        parser.parseDocument(handler);
+        byte[] tail = parser.tail == null || parser.tail.size() > MAX_TAIL ? null : parser.tail.toByteArray();
+        return new Document(parser.records, tail, parser.position);
+    }
+
+    private void parseDocument(LocatedPairHandler handler) throws IOException {
+        int c = nextNonWhitespace();
+        if (c == '\uFEFF') {
+            c = nextNonWhitespace(); // пропуск BOM
+        }
+        if (c == EOF) {
+            return; // пустой файл — пар нет
+        }
+        expect(c, '{');
+        c = nextNonWhitespace();
+        if (c == '}') {
+            expectEnd();
+            return;
+        }
+        while (true) {
+            expect(c, '"');
+            boolean addresses = readKey("addresses");
+            expect(nextNonWhitespace(), ':');
+            if (addresses && tail == null) {
+                parseAddresses(handler);
+                tail = new ByteArrayOutputStream();
+                tail.write(']');
+            } else {
+                skipValue(nextNonWhitespace());
+            }
+            c = nextNonWhitespace();
+            if (c == '}') {
+                break;
+            }
+            expect(c, ',');
+            c = nextNonWhitespace();
+        }
+        expectEnd();
+    }
+
+    private void parseAddresses(LocatedPairHandler handler) throws IOException {
+        expect(nextNonWhitespace(), '[');
+        int c = nextNonWhitespace();
+        if (c == ']') {
+            return;
+        }
+        while (true) {
+            expect(c, '{');
+            records++;
+            record[0] = '{';
+            recordLength = 1;
+            capture = true;
+            parseEntry(handler, position - 1);
+            c = nextNonWhitespace();
+            if (c == ']') {
+                return;
+            }
+            expect(c, ',');
+            c = nextNonWhitespace();
+        }
+    }
+
+    // Разбор одной записи; порядок ключей произвольный, лишние ключи пропускаются
+    private void parseEntry(LocatedPairHandler handler, long start) throws IOException {
+        String domain = null;
+        String ip = null;
+        int c = nextNonWhitespace();
+        if (c != '}') {
+            while (true) {
+                expect(c, '"');
+                int key = readEntryKey();
+                expect(nextNonWhitespace(), ':');
+                c = nextNonWhitespace();
+                if (key != 0 && c == '"') {
+                    String value = readString();
+                    if (key == 1) {
+                        domain = value;
+                    } else {
+                        ip = value;
+                    }
+                } else {
+                    skipValue(c);
+                }
+                c = nextNonWhitespace();
+                if (c == '}') {
+                    break;
+                }
+                expect(c, ',');
+                c = nextNonWhitespace();
+            }
+        }
+        capture = false;
+        if (domain == null || ip == null) {
+            System.err.println("Неверный формат пары: отсутствует domain или ip (позиция " + position + ")");
+            handler.unparsed(Arrays.copyOf(record, recordLength), start, position);
+            return;
+        }
+        if (!handler.pair(domain, ip, start, position)) {
+            handler.unparsed(Arrays.copyOf(record, recordLength), start, position);
+        }
+    }
+
+    // 1 — "domain", 2 — "ip", 0 — любой другой ключ
+    private int readEntryKey() throws IOException {
+        readChars();
+        if (contentEquals("domain")) {
+            return 1;
+        }
+        return contentEquals("ip") ? 2 : 0;
+    }
+
+    private boolean readKey(String expected) throws IOException {
+        readChars();
+        return contentEquals(expected);
+    }
+
+    private boolean contentEquals(String s) {
+        if (chars.length() != s.length()) {
+            return false;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            if (chars.charAt(i) != s.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String readString() throws IOException {
+        readChars();
+        return chars.toString();
+    }
+
+    // Чтение строки после открывающей кавычки в буфер chars
+    private void readChars() throws IOException {
+        chars.setLength(0);
+        while (true) {
+            int c = nextChar();
+            if (c == '"') {
+                return;
+            }
+            if (c == EOF) {
+                throw error("незавершенная строка");
+            }
+            if (c == '\\') {
+                c = nextChar();
+                switch (c) {
+                    case '"': case '\\': case '/':
+                        break;
+                    case 'b': c = '\b'; break;
+                    case 'f': c = '\f'; break;
+                    case 'n': c = '\n'; break;
+                    case 'r': c = '\r'; break;
+                    case 't': c = '\t'; break;
+                    case 'u':
+                        c = 0;
+                        for (int i = 0; i < 4; i++) {
+                            int digit = Character.digit(nextChar(), 16);
+                            if (digit < 0) {
+                                throw error("неверная escape-последовательность \\u");
+                            }
+                            c = (c << 4) | digit;
+                        }
+                        break;
+                    default:
+                        throw error("неверная escape-последовательность");
+                }
+            } else if (c < 0x20) {
+                throw error("управляющий символ в строке");
+            }
+            chars.append((char) c);
+        }
+    }
+
+    // Пропуск произвольного значения, первый символ которого уже прочитан
+    private void skipValue(int c) throws IOException {
+        if (c == '"') {
+            readChars();
+        } else if (c == '{' || c == '[') {
+            int depth = 1;
+            while (depth > 0) {
+                c = nextChar();
+                if (c == EOF) {
+                    throw error("незавершенный объект или массив");
+                } else if (c == '"') {
+                    readChars();
+                } else if (c == '{' || c == '[') {
+                    depth++;
+                } else if (c == '}' || c == ']') {
+                    depth--;
+                }
+            }
+        } else if (c == '-' || (c >= '0' && c <= '9') || (c >= 'a' && c <= 'z')) {
+            // число или литерал true/false/null
+            while (true) {
+                c = nextChar();
+                if (c == EOF || c == ',' || c == '}' || c == ']' || isWhitespace(c)) {
+                    peeked = c;
+                    return;
+                }
+            }
+        } else {
+            throw error("неожиданный символ '" + (char) c + "'");
+        }
+    }
+
+    private void expect(int actual, char expected) throws IOException {
+        if (actual != expected) {
+            throw error("ожидался символ '" + expected + "'");
+        }
+    }
+
+    private void expectEnd() throws IOException {
+        if (nextNonWhitespace() != EOF) {
+            throw error("лишние данные после конца документа");
+        }
+    }
+
+    private IOException error(String message) {
+        return new IOException("Неверный формат JSON: " + message + " (позиция " + position + ")");
+    }
+
+    private static boolean isWhitespace(int c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+
+    private int nextNonWhitespace() throws IOException {
+        int c;
+        do {
+            c = nextChar();
+        } while (isWhitespace(c));
+        return c;
+    }
+
+    // Следующий символ UTF-16 с декодированием UTF-8
+    private int nextChar() throws IOException {
+        if (peeked != EOF - 1) {
+            int c = peeked;
+            peeked = EOF - 1;
+            return c;
+        }
+        if (pendingLowSurrogate != EOF - 1) {
+            int c = pendingLowSurrogate;
+            pendingLowSurrogate = EOF - 1;
+            return c;
+        }
+        int b = nextByte();
+        if (b < 0x80) {
+            return b; // ASCII или EOF
+        }
+        int extra;
+        int codePoint;
+        int minimum;
+        if (b >= 0xF0 && b <= 0xF4) {
+            extra = 3;
+            codePoint = b & 0x07;
+            minimum = Character.MIN_SUPPLEMENTARY_CODE_POINT;
+        } else if (b >= 0xE0 && b <= 0xEF) {
+            extra = 2;
+            codePoint = b & 0x0F;
+            minimum = 0x800;
+        } else if (b >= 0xC2 && b <= 0xDF) {
+            extra = 1;
+            codePoint = b & 0x1F;
+            minimum = 0x80;
+        } else {
+            // байты продолжения 0x80-0xBF, избыточные 0xC0-0xC1 и 0xF5-0xFF не могут начинать символ
+            throw error(String.format("недопустимый байт UTF-8 0x%02X", b));
+        }
+        for (int i = 0; i < extra; i++) {
+            int next = nextByte();
+            if ((next & 0xC0) != 0x80) {
+                throw error("неверная последовательность UTF-8");
+            }
+            codePoint = (codePoint << 6) | (next & 0x3F);
+        }
+        // избыточная запись, суррогаты и значения больше U+10FFFF
+        if (codePoint < minimum || codePoint > Character.MAX_CODE_POINT
+                || (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE)) {
+            throw error("неверная последовательность UTF-8");
+        }
+        if (codePoint >= Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+            pendingLowSurrogate = Character.lowSurrogate(codePoint);
+            return Character.highSurrogate(codePoint);
+        }
+        return codePoint;
+    }
+
+    private int nextByte() throws IOException {
+        if (bufferPos == bufferLimit) {
+            int read = in.read(buffer);
+            if (read <= 0) {
+                return EOF;
+            }
+            bufferPos = 0;
+            bufferLimit = read;
+        }
+        position++;
+        int b = buffer[bufferPos++] & 0xFF;
+        if (tail != null && tail.size() <= MAX_TAIL) {
+            tail.write(b);
+        }
+        if (capture) {
+            if (recordLength == record.length) {
+                record = Arrays.copyOf(record, recordLength * 2);
+            }
+            record[recordLength++] = (byte) b;
+        }
+        return b;
+    }
+}
@@ -0,0 +1,87 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+// Потоковая запись json-файла с domain-IP парами с учетом расположения конца массива;
+// в памяти находится только текущая запись, буферизацию выполняет вызывающий код
+public class AddressesJsonWriter {
+    private static final byte[] HEAD = "{\"addresses\":[".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] TAIL = "]}".getBytes(StandardCharsets.UTF_8);
+
+    private AddressesJsonWriter() {
+    }
+
+    // Запись всего документа; возвращает расположение конца массива в записанном файле
+    public static FileLayout write(DomainIPIndex pairs, OutputStream out) throws IOException {
+        FileLayout.Builder layout = new FileLayout.Builder();
+        out.write(HEAD);
+        long position = HEAD.length;
+        for (int i = 0; i < pairs.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+                position++;
+            }
+            byte[] record = record(pairs.domainAt(i), pairs.ipStringAt(i));
+            out.write(record);
+            layout.add();
+            position += record.length;
+        }
+        // записи без разбора идут после пар в исходном виде
+        for (int i = 0; i < pairs.foreignCount(); i++) {
+            if (pairs.size() > 0 || i > 0) {
+                out.write(',');
+                position++;
+            }
+            byte[] record = pairs.foreignAt(i);
+            out.write(record);
+            position += record.length;
+        }
+        layout.setForeignRecords(pairs.foreignCount() > 0);
+        out.write(TAIL);
+        position += TAIL.length;
+        return layout.build(TAIL.clone(), position);
+    }
+
+    // Одна запись {"domain":"...","ip":"..."} в UTF-8
+    public static byte[] record(String domain, String ip) {
+        return ("{\"domain\":\"" + escape(domain) + "\",\"ip\":\"" + escape(ip) + "\"}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Экранирование строки для json: кавычки, обратная косая черта и управляющие символы
+    public static String escape(String value) {
+        int i = 0;
+        while (i < value.length() && !needsEscape(value.charAt(i))) {
+            i++;
+        }
+        if (i == value.length()) {
+            return value;
+        }
+        StringBuilder result = new StringBuilder(value.length() + 8);
+        result.append(value, 0, i);
+        for (; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': result.append("\\\""); break;
+                case '\\': result.append("\\\\"); break;
+                case '\b': result.append("\\b"); break;
+                case '\f': result.append("\\f"); break;
+                case '\n': result.append("\\n"); break;
+                case '\r': result.append("\\r"); break;
+                case '\t': result.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        result.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        result.append(c);
+                    }
+            }
+        }
+        return result.toString();
+    }
+
+    private static boolean needsEscape(char c) {
+        return c < 0x20 || c == '"' || c == '\\';
+    }
+}
@@ -0,0 +1,49 @@
+package org.example;
+
+// Результат применения одного изменения из пакета
+public class BatchResult {
+    public enum Outcome {
+        ADDED("добавлено"),
+        DELETED("удалено"),
+        EMPTY_DOMAIN("домен не может быть пустым"),
+        INVALID_IP("недопустимый IP"),
+        DUPLICATE("domain или IP уже существует"),
+        NOT_FOUND("пара не найдена");
+
+        private final String description;
+
+        Outcome(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    private final PairChange change;
+    private final Outcome outcome;
+
+    public BatchResult(PairChange change, Outcome outcome) {
+        this.change = change;
+        this.outcome = outcome;
+    }
+
+    public PairChange getChange() {
+        return change;
+    }
+
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    // Изменение было применено
+    public boolean isApplied() {
+        return outcome == Outcome.ADDED || outcome == Outcome.DELETED;
+    }
+
+    @Override
+    public String toString() {
+        return change + ": " + outcome.getDescription();
+    }
+}
@@ -0,0 +1,232 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// Компактное неизменяемое хранилище domain-IP пар с поиском за O(1).
+// IP хранятся упакованными в int, поиск идет по открытой адресации без создания объектов.
+public class DomainIPIndex implements PairLookup {
+    private static final int EMPTY = 0; // в слотах хранится номер записи + 1
+
+    private final String[] domains;
+    private final int[] ips;
+    private final int size;
+    // записи файла, которые не стали парами (например, с невалидным IP); при перезаписи файла
+    // они сохраняются байт в байт, чтобы не терять чужие данные
+    private final byte[][] foreign;
+    private final int[] domainSlots;
+    private final int[] ipSlots;
+    private final int mask;
+    // индекс для поиска по шаблону; строится при первом обращении
+    private volatile DomainSearchIndex searchIndex;
+    // индекс для поиска по диапазону IP; строится при первом обращении
+    private volatile IPRangeIndex rangeIndex;
+
+    private DomainIPIndex(String[] domains, int[] ips, int size, byte[][] foreign) {
+        this.domains = domains;
+        this.ips = ips;
+        this.size = size;
+        this.foreign = foreign;
+        int capacity = tableCapacity(size);
+        this.mask = capacity - 1;
+        this.domainSlots = new int[capacity];
+        this.ipSlots = new int[capacity];
+        for (int i = 0; i < size; i++) {
+            // при дубликатах побеждает первая запись
+            if (indexOfDomain(domains[i]) < 0) {
+                int slot = hashDomain(domains[i]) & mask;
+                while (domainSlots[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                domainSlots[slot] = i + 1;
+            }
+            if (indexOfIP(ips[i]) < 0) {
+                int slot = hashIP(ips[i]) & mask;
+                while (ipSlots[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                ipSlots[slot] = i + 1;
+            }
+        }
+    }
+
+    // Номер записи с данным domain (без учета регистра), -1 если не найден
+    public int indexOfDomain(String domain) {
+        if (domain == null) {
+            return -1;
+        }
+        for (int slot = hashDomain(domain) & mask; domainSlots[slot] != EMPTY; slot = (slot + 1) & mask) {
+            int i = domainSlots[slot] - 1;
+            if (domains[i].equalsIgnoreCase(domain)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Номер записи с данным упакованным IP, -1 если не найден
+    public int indexOfIP(int ip) {
+        for (int slot = hashIP(ip) & mask; ipSlots[slot] != EMPTY; slot = (slot + 1) & mask) {
+            int i = ipSlots[slot] - 1;
+            if (ips[i] == ip) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String getIP(String domain) {
+        int i = indexOfDomain(domain);
+        return i < 0 ? null : IPv4.format(ips[i]);
+    }
+
+    @Override
+    public String getDomain(String ip) {
+        long packed = IPv4.parse(ip);
+        if (packed == IPv4.INVALID) {
+            return null;
+        }
+        int i = indexOfIP((int) packed);
+        return i < 0 ? null : domains[i];
+    }
+
+    public String domainAt(int i) {
+        return domains[i];
+    }
+
+    public int ipAt(int i) {
+        return ips[i];
+    }
+
+    public String ipStringAt(int i) {
+        return IPv4.format(ips[i]);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Число записей, сохраняемых без разбора
+    public int foreignCount() {
+        return foreign.length;
+    }
+
+    // Исходный текст записи без разбора (UTF-8)
+    public byte[] foreignAt(int i) {
+        return foreign[i].clone();
+    }
+
+    // Индекс поиска по префиксу, зоне и шаблону; индекс неизменяемый, поэтому строится один раз
+    public DomainSearchIndex getSearchIndex() {
+        DomainSearchIndex result = searchIndex;
+        if (result == null) {
+            result = new DomainSearchIndex(this);
+            searchIndex = result;
+        }
+        return result;
+    }
+
+    // Индекс поиска по диапазону IP и подсети CIDR
+    public IPRangeIndex getRangeIndex() {
+        IPRangeIndex result = rangeIndex;
+        if (result == null) {
+            result = new IPRangeIndex(this);
+            rangeIndex = result;
+        }
+        return result;
+    }
+
+    // Построитель нового индекса, заполненный текущими записями
+    public Builder toBuilder() {
+        Builder builder = new Builder(size + 1);
+        System.arraycopy(domains, 0, builder.domains, 0, size);
+        System.arraycopy(ips, 0, builder.ips, 0, size);
+        builder.size = size;
+        builder.addForeign(this);
+        return builder;
+    }
+
+    // Размер хэш-таблиц: степень двойки, заполнение не больше половины
+    static int tableCapacity(int size) {
+        return Integer.highestOneBit(Math.max(size, 1) * 2 - 1) << 1;
+    }
+
+    // Хэш без учета регистра, согласованный с equalsIgnoreCase
+    static int hashDomain(String domain) {
+        int h = 0;
+        for (int i = 0; i < domain.length(); i++) {
+            h = 31 * h + Character.toLowerCase(Character.toUpperCase(domain.charAt(i)));
+        }
+        return mix(h);
+    }
+
+    static int hashIP(int ip) {
+        return mix(ip);
+    }
+
+    private static int mix(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    // Построитель индекса
+    public static class Builder {
+        private String[] domains;
+        private int[] ips;
+        private int size;
+        private final List<byte[]> foreign = new ArrayList<>();
+
+        public Builder() {
+            this(16);
+        }
+
+        public Builder(int capacity) {
+            capacity = Math.max(capacity, 1);
+            domains = new String[capacity];
+            ips = new int[capacity];
+        }
+
+        public void add(String domain, int ip) {
+            if (size == domains.length) {
+                int capacity = size + (size >> 1) + 1;
+                domains = Arrays.copyOf(domains, capacity);
+                ips = Arrays.copyOf(ips, capacity);
+            }
+            domains[size] = domain;
+            ips[size] = ip;
+            size++;
+        }
+
+        // Добавление пары со строковым IP; false, если IP невалиден
+        public boolean add(String domain, String ip) {
+            long packed = IPv4.parse(ip);
+            if (packed == IPv4.INVALID) {
+                return false;
+            }
+            add(domain, (int) packed);
+            return true;
+        }
+
+        // Запись, которая сохраняется в файле без изменений
+        public void addForeign(byte[] record) {
+            foreign.add(record);
+        }
+
+        // Перенос записей без разбора из другого индекса (при изменении набора пар)
+        public void addForeign(DomainIPIndex index) {
+            Collections.addAll(foreign, index.foreign);
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public DomainIPIndex build() {
+            return new DomainIPIndex(Arrays.copyOf(domains, size), Arrays.copyOf(ips, size), size,
+                    foreign.toArray(new byte[0][]));
+        }
+    }
+}
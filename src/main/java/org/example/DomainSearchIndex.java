@@ -0,0 +1,179 @@
+package org.example;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+// Поиск доменов по префиксу, зоне и шаблону со звездочками.
+// Записи упорядочены двумя массивами: по имени домена и по имени с обратным порядком меток
+// (host.corp.example.com -> com.example.corp.host), так что все домены зоны идут подряд.
+// Диапазон находится двоичным поиском, страница результата отдается без обхода остальных записей.
+public class DomainSearchIndex {
+    private final DomainIPIndex index;
+    private final int[] byName;
+    private final String[] names; // домены в нижнем регистре в порядке byName
+    private final int[] byReversed;
+    private final String[] reversed; // обращенные домены в порядке byReversed
+
+    DomainSearchIndex(DomainIPIndex index) {
+        this.index = index;
+        int size = index.size();
+        String[] nameKeys = new String[size];
+        String[] reversedKeys = new String[size];
+        for (int i = 0; i < size; i++) {
+            nameKeys[i] = normalize(index.domainAt(i));
+            reversedKeys[i] = reverseLabels(nameKeys[i]);
+        }
+        byName = sortedOrder(nameKeys);
+        byReversed = sortedOrder(reversedKeys);
+        names = new String[size];
+        reversed = new String[size];
+        for (int n = 0; n < size; n++) {
+            names[n] = nameKeys[byName[n]];
+            reversed[n] = reversedKeys[byReversed[n]];
+        }
+    }
+
+    public int size() {
+        return byName.length;
+    }
+
+    // Номер записи индекса на позиции position в порядке сортировки по домену
+    public int byDomain(int position) {
+        return byName[position];
+    }
+
+    // Поиск по шаблону без учета регистра:
+    // "api-*" — домены с префиксом, "*.corp.example.com" — все домены зоны, "example.com" — точное совпадение,
+    // прочие шаблоны со '*' проверяются на записях наиболее узкого диапазона (зоны или префикса)
+    public PairPage find(String pattern, int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Неверная страница: offset=" + offset + ", limit=" + limit);
+        }
+        String query = normalize(pattern);
+        int star = query.indexOf('*');
+        if (star < 0) {
+            return range(byName, names, query, query + '\0', offset, limit);
+        }
+        int lastStar = query.lastIndexOf('*');
+        String head = query.substring(0, star);
+        String tail = query.substring(lastStar + 1);
+        if (star == lastStar && star == query.length() - 1) {
+            return range(byName, names, head, head + Character.MAX_VALUE, offset, limit);
+        }
+        if (star == lastStar && star == 0 && tail.startsWith(".") && tail.length() > 1) {
+            String zone = reverseLabels(tail.substring(1)) + ".";
+            return range(byReversed, reversed, zone, zone + Character.MAX_VALUE, offset, limit);
+        }
+
+        Pattern regex = toRegex(query);
+        int dot = tail.indexOf('.');
+        if (dot >= 0 && dot + 1 < tail.length()) {
+            // шаблон заканчивается известной зоной — проверяются только ее домены
+            String zone = reverseLabels(tail.substring(dot + 1)) + ".";
+            return filter(byReversed, reversed, zone, zone + Character.MAX_VALUE, regex, offset, limit);
+        }
+        return filter(byName, names, head, head + Character.MAX_VALUE, regex, offset, limit);
+    }
+
+    private PairPage range(int[] order, String[] keys, String from, String to, int offset, int limit) {
+        int start = lowerBound(keys, from);
+        int end = lowerBound(keys, to);
+        int first = Math.min(start + offset, end);
+        int last = (int) Math.min((long) first + limit, end);
+        return new PairPage(index, Arrays.copyOfRange(order, first, last), offset, end - start);
+    }
+
+    private PairPage filter(int[] order, String[] keys, String from, String to, Pattern regex, int offset, int limit) {
+        int start = lowerBound(keys, from);
+        int end = lowerBound(keys, to);
+        int[] page = new int[Math.min(limit, end - start)];
+        int found = 0;
+        int total = 0;
+        for (int n = start; n < end; n++) {
+            int record = order[n];
+            if (regex.matcher(normalize(index.domainAt(record))).matches()) {
+                if (total >= offset && found < page.length) {
+                    page[found++] = record;
+                }
+                total++;
+            }
+        }
+        return new PairPage(index, Arrays.copyOf(page, found), offset, total);
+    }
+
+    private static Pattern toRegex(String query) {
+        StringBuilder regex = new StringBuilder();
+        int from = 0;
+        for (int star = query.indexOf('*'); star >= 0; star = query.indexOf('*', from)) {
+            if (star > from) {
+                regex.append(Pattern.quote(query.substring(from, star)));
+            }
+            regex.append(".*");
+            from = star + 1;
+        }
+        if (from < query.length()) {
+            regex.append(Pattern.quote(query.substring(from)));
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    private static int lowerBound(String[] keys, String key) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static String normalize(String domain) {
+        String result = domain.trim().toLowerCase(Locale.ROOT);
+        return result.endsWith(".") ? result.substring(0, result.length() - 1) : result;
+    }
+
+    // host.corp.example.com -> com.example.corp.host
+    static String reverseLabels(String domain) {
+        StringBuilder result = new StringBuilder(domain.length());
+        int end = domain.length();
+        for (int dot = domain.lastIndexOf('.'); dot >= 0; dot = domain.lastIndexOf('.', end - 1)) {
+            result.append(domain, dot + 1, end).append('.');
+            end = dot;
+        }
+        return result.append(domain, 0, end).toString();
+    }
+
+    // Порядок номеров записей по возрастанию ключей (сортировка слиянием без упаковки в Integer)
+    private static int[] sortedOrder(String[] keys) {
+        int[] order = new int[keys.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        int[] buffer = new int[keys.length];
+        for (int width = 1; width < order.length; width *= 2) {
+            for (int low = 0; low < order.length - width; low += 2 * width) {
+                int mid = low + width;
+                int high = Math.min(low + 2 * width, order.length);
+                if (keys[order[mid - 1]].compareTo(keys[order[mid]]) <= 0) {
+                    continue; // половины уже упорядочены
+                }
+                System.arraycopy(order, low, buffer, low, high - low);
+                int left = low;
+                int right = mid;
+                for (int k = low; k < high; k++) {
+                    if (right >= high || (left < mid && keys[buffer[left]].compareTo(keys[buffer[right]]) <= 0)) {
+                        order[k] = buffer[left++];
+                    } else {
+                        order[k] = buffer[right++];
+                    }
+                }
+            }
+        }
+        return order;
+    }
+}
@@ -0,0 +1,95 @@
+package org.example;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+// Расположение конца массива addresses в json-файле на сервере для дописывания записей без перезаписи всего файла.
+// Удаление и другие изменения выполняются только полной перезаписью через временный файл
+public class FileLayout {
+    private final int count;
+    private final byte[] tail; // от закрывающей ']' массива до конца файла
+    private final long fileSize;
+    private final boolean foreignRecords; // в массиве есть записи, не попавшие в индекс
+
+    private FileLayout(int count, byte[] tail, long fileSize, boolean foreignRecords) {
+        this.count = count;
+        this.tail = tail;
+        this.fileSize = fileSize;
+        this.foreignRecords = foreignRecords;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    // Смещение закрывающей ']' массива addresses
+    public long arrayEnd() {
+        return fileSize - tail.length;
+    }
+
+    // Запись можно дописать перед ']', если известен хвост файла и понятно, нужна ли запятая
+    public boolean canAppend() {
+        return tail != null && !(count == 0 && foreignRecords);
+    }
+
+    // Совпадение байтов файла начиная с arrayEnd() с ожидаемым хвостом
+    public boolean tailMatches(byte[] bytes) {
+        return Arrays.equals(tail, bytes);
+    }
+
+    public int tailLength() {
+        return tail.length;
+    }
+
+    // Байты, которые записываются с позиции arrayEnd() при добавлении записей
+    public byte[] appendBytes(byte[]... records) {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        boolean separator = count > 0 || foreignRecords;
+        for (byte[] record : records) {
+            if (separator) {
+                result.write(',');
+            }
+            result.write(record, 0, record.length);
+            separator = true;
+        }
+        result.write(tail, 0, tail.length);
+        return result.toByteArray();
+    }
+
+    // Расположение после дописывания записей заданной длины
+    public FileLayout withAppended(int... recordLengths) {
+        boolean separator = count > 0 || foreignRecords;
+        long position = arrayEnd();
+        for (int length : recordLengths) {
+            if (separator) {
+                position++;
+            }
+            position += length;
+            separator = true;
+        }
+        return new FileLayout(count + recordLengths.length, tail, position + tail.length, foreignRecords);
+    }
+
+    // Построитель расположения по мере разбора или записи файла
+    public static class Builder {
+        private int count;
+        private boolean foreignRecords;
+
+        public void add() {
+            count++;
+        }
+
+        // В массиве есть записи, которые не попали в индекс (например, с невалидным IP)
+        public void setForeignRecords(boolean foreignRecords) {
+            this.foreignRecords = foreignRecords;
+        }
+
+        public FileLayout build(byte[] tail, long fileSize) {
+            return new FileLayout(count, tail, fileSize, foreignRecords);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package org.example;
+
+import java.util.Arrays;
+
+// Поиск domain по диапазону IP и подсети CIDR.
+// IP хранятся отсортированным массивом int (сравнение без знака) с параллельным массивом номеров записей,
+// границы диапазона находятся двоичным поиском, поэтому запрос стоит O(log n + число совпадений).
+public class IPRangeIndex {
+    private final DomainIPIndex index;
+    private final int[] ips; // по возрастанию без знака
+    private final int[] records;
+
+    IPRangeIndex(DomainIPIndex index) {
+        this.index = index;
+        int size = index.size();
+        // IP в старших 32 битах, номер записи в младших: одна сортировка примитивов дает оба массива.
+        // Инверсия знакового бита переводит порядок без знака в порядок long со знаком
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = ((long) (index.ipAt(i) ^ Integer.MIN_VALUE) << 32) | i;
+        }
+        Arrays.sort(keys);
+        ips = new int[size];
+        records = new int[size];
+        for (int n = 0; n < size; n++) {
+            ips[n] = (int) (keys[n] >>> 32) ^ Integer.MIN_VALUE;
+            records[n] = (int) keys[n];
+        }
+    }
+
+    // Записи с IP в диапазоне [from, to] включительно; адреса проверяются и нормализуются как в IPv4.parse
+    public PairPage findRange(String from, String to, int offset, int limit) {
+        long low = IPv4.parse(from);
+        long high = IPv4.parse(to);
+        if (low == IPv4.INVALID || high == IPv4.INVALID) {
+            throw new IllegalArgumentException("Недопустимый IP: " + (low == IPv4.INVALID ? from : to));
+        }
+        return find(low, high, offset, limit);
+    }
+
+    // Записи подсети в нотации CIDR, например 10.20.0.0/16
+    public PairPage findCidr(String cidr, int offset, int limit) {
+        int slash = cidr.indexOf('/');
+        long ip = slash > 0 ? IPv4.parse(cidr.substring(0, slash).trim()) : IPv4.INVALID;
+        int prefix = -1;
+        if (slash > 0) {
+            try {
+                prefix = Integer.parseInt(cidr.substring(slash + 1).trim());
+            } catch (NumberFormatException e) {
+                prefix = -1;
+            }
+        }
+        if (ip == IPv4.INVALID || prefix < 0 || prefix > 32) {
+            throw new IllegalArgumentException("Неверный CIDR: " + cidr);
+        }
+        long hostBits = (1L << (32 - prefix)) - 1;
+        long network = ip & ~hostBits & 0xFFFFFFFFL;
+        return find(network, network | hostBits, offset, limit);
+    }
+
+    private PairPage find(long low, long high, int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Неверная страница: offset=" + offset + ", limit=" + limit);
+        }
+        if (low > high) {
+            return new PairPage(index, new int[0], offset, 0);
+        }
+        int start = lowerBound(low);
+        int end = high == 0xFFFFFFFFL ? ips.length : lowerBound(high + 1);
+        int first = Math.min(start + offset, end);
+        int last = (int) Math.min((long) first + limit, end);
+        return new PairPage(index, Arrays.copyOfRange(records, first, last), offset, end - start);
+    }
+
+    // Первая позиция с IP не меньше value (без знака)
+    private int lowerBound(long value) {
+        int low = 0;
+        int high = ips.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (Integer.toUnsignedLong(ips[mid]) < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,63 @@
+package org.example;
+
+// Разбор и форматирование IPv4-адресов за один проход без создания объектов.
+// Правила совпадают с прежним регулярным выражением: четыре октета по 1-3 цифры
+// (ведущие нули допустимы), значение каждого октета от 0 до 255.
+public final class IPv4 {
+    public static final long INVALID = -1;
+
+    private IPv4() {
+    }
+
+    // Упаковка адреса в младшие 32 бита, INVALID для невалидной строки
+    public static long parse(CharSequence ip) {
+        if (ip == null) {
+            return INVALID;
+        }
+        int length = ip.length();
+        if (length < 7 || length > 15) {
+            return INVALID;
+        }
+        long packed = 0;
+        int octets = 0;
+        int value = 0;
+        int digits = 0;
+        for (int i = 0; i < length; i++) {
+            char c = ip.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (++digits > 3) {
+                    return INVALID;
+                }
+                value = value * 10 + (c - '0');
+            } else if (c == '.') {
+                if (digits == 0 || value > 255 || octets == 3) {
+                    return INVALID;
+                }
+                packed = (packed << 8) | value;
+                octets++;
+                value = 0;
+                digits = 0;
+            } else {
+                return INVALID;
+            }
+        }
+        if (digits == 0 || value > 255 || octets != 3) {
+            return INVALID;
+        }
+        return (packed << 8) | value;
+    }
+
+    public static boolean isValid(CharSequence ip) {
+        return parse(ip) != INVALID;
+    }
+
+    public static String format(int ip) {
+        return (ip >>> 24) + "." + ((ip >>> 16) & 0xFF) + "." + ((ip >>> 8) & 0xFF) + "." + (ip & 0xFF);
+    }
+
+    // Нормализация адреса (удаление ведущих нулей); невалидная строка возвращается как есть
+    public static String normalize(String ip) {
+        long packed = parse(ip);
+        return packed == INVALID ? ip : format((int) packed);
+    }
+}
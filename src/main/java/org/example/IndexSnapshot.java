@@ -0,0 +1,202 @@
+package org.example;
+
+import com.jcraft.jsch.SftpATTRS;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+
+// Локальный снимок индекса domain-IP пар в двоичном формате, отображаемый в память.
+// Поиск идет прямо по отображенному файлу, без загрузки json с сервера и построения индекса.
+// Формат: заголовок, IP записей, смещения domain, таблицы domain и IP (как в DomainIPIndex), байты domain в UTF-8
+public class IndexSnapshot implements PairLookup {
+    private static final int MAGIC = 0x53464950;
+    private static final int VERSION = 1;
+
+    private final String fileName;
+    private final int mtime;
+    private final long fileSize;
+    private final int size;
+    private final int mask;
+    private final IntBuffer ips;
+    private final IntBuffer domainOffsets;
+    private final IntBuffer domainSlots;
+    private final IntBuffer ipSlots;
+    private final ByteBuffer domainData;
+
+    private IndexSnapshot(ByteBuffer buffer) throws IOException {
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Неизвестный формат снимка");
+            }
+            mtime = buffer.getInt();
+            fileSize = buffer.getLong();
+            size = buffer.getInt();
+            int capacity = buffer.getInt();
+            byte[] name = new byte[buffer.getShort() & 0xFFFF];
+            buffer.get(name);
+            fileName = new String(name, StandardCharsets.UTF_8);
+            if (size < 0 || capacity != DomainIPIndex.tableCapacity(size)) {
+                throw new IOException("Поврежденный снимок: размер " + size);
+            }
+            mask = capacity - 1;
+            ips = intSlice(buffer, size);
+            domainOffsets = intSlice(buffer, size + 1);
+            domainSlots = intSlice(buffer, capacity);
+            ipSlots = intSlice(buffer, capacity);
+            domainData = buffer.slice();
+            if (domainOffsets.get(size) != domainData.remaining()) {
+                throw new IOException("Поврежденный снимок: неполные данные");
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Поврежденный снимок", e);
+        }
+    }
+
+    private static IntBuffer intSlice(ByteBuffer buffer, int count) {
+        ByteBuffer slice = buffer.slice();
+        slice.limit(count * 4);
+        buffer.position(buffer.position() + count * 4);
+        return slice.asIntBuffer();
+    }
+
+    // Отображение файла снимка в память; отображение остается действительным после закрытия канала
+    public static IndexSnapshot open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new IndexSnapshot(buffer);
+        }
+    }
+
+    // Запись снимка во временный файл и атомарное переименование в path (SnapshotStore передает новое имя версии)
+    public static void write(Path path, String fileName, int mtime, long fileSize, DomainIPIndex index)
+            throws IOException {
+        int size = index.size();
+        int capacity = DomainIPIndex.tableCapacity(size);
+        byte[][] domains = new byte[size][];
+        int[] domainSlots = new int[capacity];
+        int[] ipSlots = new int[capacity];
+        for (int i = 0; i < size; i++) {
+            String domain = index.domainAt(i);
+            domains[i] = domain.getBytes(StandardCharsets.UTF_8);
+            // в таблицы попадают те же записи, что и в индексе (при дубликатах — первая)
+            if (index.indexOfDomain(domain) == i) {
+                put(domainSlots, DomainIPIndex.hashDomain(domain), i);
+            }
+            if (index.indexOfIP(index.ipAt(i)) == i) {
+                put(ipSlots, DomainIPIndex.hashIP(index.ipAt(i)), i);
+            }
+        }
+
+        Path temp = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+                byte[] name = fileName.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(mtime);
+                out.writeLong(fileSize);
+                out.writeInt(size);
+                out.writeInt(capacity);
+                out.writeShort(name.length);
+                out.write(name);
+                for (int i = 0; i < size; i++) {
+                    out.writeInt(index.ipAt(i));
+                }
+                int offset = 0;
+                out.writeInt(offset);
+                for (byte[] domain : domains) {
+                    offset += domain.length;
+                    out.writeInt(offset);
+                }
+                for (int slot : domainSlots) {
+                    out.writeInt(slot);
+                }
+                for (int slot : ipSlots) {
+                    out.writeInt(slot);
+                }
+                for (byte[] domain : domains) {
+                    out.write(domain);
+                }
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void put(int[] slots, int hash, int i) {
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+        while (slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = i + 1;
+    }
+
+    // Снимок соответствует файлу на сервере
+    public boolean matches(String fileName, SftpATTRS attrs) {
+        return attrs != null && this.fileName.equals(fileName)
+                && attrs.getMTime() == mtime && attrs.getSize() == fileSize;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String getIP(String domain) {
+        if (domain == null) {
+            return null;
+        }
+        for (int slot = DomainIPIndex.hashDomain(domain) & mask; domainSlots.get(slot) != 0; slot = (slot + 1) & mask) {
+            int i = domainSlots.get(slot) - 1;
+            if (domainAt(i).equalsIgnoreCase(domain)) {
+                return IPv4.format(ips.get(i));
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String getDomain(String ip) {
+        long packed = IPv4.parse(ip);
+        if (packed == IPv4.INVALID) {
+            return null;
+        }
+        for (int slot = DomainIPIndex.hashIP((int) packed) & mask; ipSlots.get(slot) != 0; slot = (slot + 1) & mask) {
+            int i = ipSlots.get(slot) - 1;
+            if (ips.get(i) == (int) packed) {
+                return domainAt(i);
+            }
+        }
+        return null;
+    }
+
+    private String domainAt(int i) {
+        int start = domainOffsets.get(i);
+        byte[] bytes = new byte[domainOffsets.get(i + 1) - start];
+        ByteBuffer data = domainData.duplicate();
+        data.position(start);
+        data.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Построение индекса в памяти из снимка (для изменений и полного списка пар)
+    public DomainIPIndex toIndex() {
+        DomainIPIndex.Builder builder = new DomainIPIndex.Builder(size);
+        for (int i = 0; i < size; i++) {
+            builder.add(domainAt(i), ips.get(i));
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,140 @@
+package org.example;
+
+import java.util.*;
+
+// Применение пакета изменений к индексу в памяти.
+// Каждое изменение проверяется по хэш-индексу существующих пар с учетом предыдущих изменений пакета.
+public class PairBatch {
+
+    private static class Added {
+        final String domain;
+        final int ip;
+
+        Added(String domain, int ip) {
+            this.domain = domain;
+            this.ip = ip;
+        }
+    }
+
+    private final DomainIPIndex base;
+    private final List<BatchResult> results = new ArrayList<>();
+    // существующие пары, удаленные по domain (в нижнем регистре) или по IP
+    private final Set<String> deletedDomains = new HashSet<>();
+    private final Set<Integer> deletedIPs = new HashSet<>();
+    // добавленные пары в порядке добавления
+    private final Map<String, Added> addedByDomain = new LinkedHashMap<>();
+    private final Map<Integer, String> addedByIP = new HashMap<>();
+    private boolean changed;
+
+    public PairBatch(DomainIPIndex base) {
+        this.base = base;
+    }
+
+    public BatchResult apply(PairChange change) {
+        BatchResult result = new BatchResult(change,
+                change.getType() == PairChange.Type.ADD ? add(change) : delete(change.getData()));
+        changed |= result.isApplied();
+        results.add(result);
+        return result;
+    }
+
+    private BatchResult.Outcome add(PairChange change) {
+        String domain = change.getDomain();
+        if (domain == null || domain.trim().isEmpty()) {
+            return BatchResult.Outcome.EMPTY_DOMAIN;
+        }
+        long packed = IPv4.parse(change.getIp());
+        if (packed == IPv4.INVALID) {
+            return BatchResult.Outcome.INVALID_IP;
+        }
+        int ip = (int) packed;
+        String key = domain.toLowerCase(Locale.ROOT);
+        if (addedByDomain.containsKey(key) || addedByIP.containsKey(ip)
+                || isLive(base.indexOfDomain(domain)) || isLive(base.indexOfIP(ip))) {
+            return BatchResult.Outcome.DUPLICATE;
+        }
+        addedByDomain.put(key, new Added(domain, ip));
+        addedByIP.put(ip, key);
+        return BatchResult.Outcome.ADDED;
+    }
+
+    private BatchResult.Outcome delete(String data) {
+        if (data == null) {
+            return BatchResult.Outcome.NOT_FOUND;
+        }
+        boolean found = false;
+        String key = data.toLowerCase(Locale.ROOT);
+        long packed = IPv4.parse(data);
+
+        Added added = addedByDomain.remove(key);
+        if (added != null) {
+            addedByIP.remove(added.ip);
+            found = true;
+        }
+        if (packed != IPv4.INVALID) {
+            String addedDomain = addedByIP.remove((int) packed);
+            if (addedDomain != null) {
+                addedByDomain.remove(addedDomain);
+                found = true;
+            }
+        }
+
+        if (isLive(base.indexOfDomain(data))) {
+            deletedDomains.add(key);
+            found = true;
+        }
+        if (packed != IPv4.INVALID && isLive(base.indexOfIP((int) packed))) {
+            deletedIPs.add((int) packed);
+            found = true;
+        }
+        return found ? BatchResult.Outcome.DELETED : BatchResult.Outcome.NOT_FOUND;
+    }
+
+    // Существующая запись i не удалена изменениями пакета
+    private boolean isLive(int i) {
+        return i >= 0 && !isDeleted(i);
+    }
+
+    private boolean isDeleted(int i) {
+        return deletedIPs.contains(base.ipAt(i))
+                || deletedDomains.contains(base.domainAt(i).toLowerCase(Locale.ROOT));
+    }
+
+    public List<BatchResult> getResults() {
+        return results;
+    }
+
+    // Хотя бы одно изменение применено
+    public boolean hasChanges() {
+        return changed;
+    }
+
+    // Пакет только добавляет пары, существующие записи не затронуты
+    public boolean isAppendOnly() {
+        return deletedDomains.isEmpty() && deletedIPs.isEmpty();
+    }
+
+    // Добавленные пары в порядке добавления, IP в нормализованном виде
+    public List<PairChange> getAdded() {
+        List<PairChange> result = new ArrayList<>(addedByDomain.size());
+        for (Added added : addedByDomain.values()) {
+            result.add(PairChange.add(added.domain, IPv4.format(added.ip)));
+        }
+        return result;
+    }
+
+    public DomainIPIndex build() {
+        DomainIPIndex.Builder builder = new DomainIPIndex.Builder(base.size() + addedByDomain.size());
+        boolean filter = !isAppendOnly();
+        for (int i = 0; i < base.size(); i++) {
+            if (!filter || !isDeleted(i)) {
+                builder.add(base.domainAt(i), base.ipAt(i));
+            }
+        }
+        for (Added added : addedByDomain.values()) {
+            builder.add(added.domain, added.ip);
+        }
+        builder.addForeign(base);
+        return builder.build();
+    }
+}
@@ -0,0 +1,159 @@
+package org.example;
+
+import com.jcraft.jsch.SftpATTRS;
+
+// Кэш индекса domain-IP пар с ревалидацией по mtime/size json-файла
+public class PairCache {
+    private final String key;
+    private final boolean shard;
+    private String fileName;
+    private int mtime;
+    private long size;
+    // индекс и время проверки читаются без блокировки: поиск не ждет загрузку и запись
+    private volatile long checkedAt;
+    private volatile DomainIPIndex index;
+    private FileLayout layout; // расположение конца массива для дописывания записей, может отсутствовать
+    private long generation;
+    // блокировка загрузки файла; проверки кэша ее не ждут
+    private final Object loadLock = new Object();
+    // локальный снимок, по которому отвечают на запросы до первой загрузки индекса
+    private IndexSnapshot snapshot;
+    private boolean snapshotOpened;
+    // число фоновых наблюдателей за файлом; пока они есть, индекс считается актуальным
+    private volatile int watchers;
+    // набор шардов, если данные каталога разделены на несколько файлов; индекс кэша — их объединение
+    private ShardSet shards;
+
+    public PairCache(String key) {
+        this(key, false);
+    }
+
+    // shard — кэш одного файла из набора шардов; локальные снимки для него не сохраняются
+    public PairCache(String key, boolean shard) {
+        this.key = key;
+        this.shard = shard;
+    }
+
+    public boolean isShard() {
+        return shard;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    // Индекс можно отдавать без обращения к серверу, пока не истек TTL или файл проверяет наблюдатель
+    public boolean isFresh(long ttlMillis) {
+        return index != null && (watchers > 0 || System.currentTimeMillis() - checkedAt < ttlMillis);
+    }
+
+    public synchronized void addWatcher() {
+        watchers++;
+    }
+
+    public synchronized void removeWatcher() {
+        watchers--;
+    }
+
+    // Проверка, что файл на сервере не изменился с момента загрузки
+    public synchronized boolean matches(SftpATTRS attrs) {
+        return index != null && attrs != null && attrs.getMTime() == mtime && attrs.getSize() == size;
+    }
+
+    // Продление срока жизни после успешной ревалидации
+    public synchronized void touch() {
+        checkedAt = System.currentTimeMillis();
+    }
+
+    public void update(String fileName, SftpATTRS attrs, DomainIPIndex index, FileLayout layout) {
+        update(fileName, attrs.getMTime(), attrs.getSize(), index, layout);
+    }
+
+    public synchronized void update(String fileName, int mtime, long size, DomainIPIndex index, FileLayout layout) {
+        this.fileName = fileName;
+        this.mtime = mtime;
+        this.size = size;
+        this.index = index;
+        this.layout = layout != null && layout.getFileSize() == size ? layout : null;
+        this.checkedAt = System.currentTimeMillis();
+        this.generation++;
+        this.snapshot = null;
+    }
+
+    // Индекс, объединенный из шардов; актуальность каждого шарда проверяется по его собственному кэшу
+    public synchronized void updateMerged(DomainIPIndex index) {
+        this.fileName = null;
+        this.index = index;
+        this.layout = null;
+        this.checkedAt = System.currentTimeMillis();
+        this.generation++;
+        this.snapshot = null;
+    }
+
+    // Сброс индекса и сохраненного пути к файлу; путь будет найден заново при следующей загрузке
+    public synchronized void forgetFile() {
+        fileName = null;
+        shards = null;
+        invalidate();
+    }
+
+    public synchronized void invalidate() {
+        index = null;
+        layout = null;
+        generation++;
+    }
+
+    // Номер версии индекса; меняется при каждой загрузке или сбросе
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    public Object loadLock() {
+        return loadLock;
+    }
+
+    // true только при первом вызове: снимок открывается один раз за время работы
+    public synchronized boolean markSnapshotOpened() {
+        if (snapshotOpened) {
+            return false;
+        }
+        snapshotOpened = true;
+        return true;
+    }
+
+    public synchronized IndexSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public synchronized void setSnapshot(IndexSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    public synchronized int getMTime() {
+        return mtime;
+    }
+
+    public synchronized long getSize() {
+        return size;
+    }
+
+    public synchronized ShardSet getShards() {
+        return shards;
+    }
+
+    public synchronized void setShards(ShardSet shards) {
+        this.shards = shards;
+    }
+
+    public synchronized String getFileName() {
+        return fileName;
+    }
+
+    public DomainIPIndex getIndex() {
+        return index;
+    }
+
+    public synchronized FileLayout getLayout() {
+        return layout;
+    }
+}
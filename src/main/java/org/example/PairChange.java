@@ -0,0 +1,93 @@
+package org.example;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// Одно изменение в пакете: добавление пары или удаление по domain/IP
+public class PairChange {
+    public enum Type { ADD, DELETE }
+
+    private final Type type;
+    private final String domain;
+    private final String ip;
+    private final String data;
+
+    private PairChange(Type type, String domain, String ip, String data) {
+        this.type = type;
+        this.domain = domain;
+        this.ip = ip;
+        this.data = data;
+    }
+
+    public static PairChange add(String domain, String ip) {
+        return new PairChange(Type.ADD, domain, ip, null);
+    }
+
+    // Удаление пары по domain или IP
+    public static PairChange delete(String data) {
+        return new PairChange(Type.DELETE, null, null, data);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getDomain() {
+        return domain;
+    }
+
+    public String getIp() {
+        return ip;
+    }
+
+    public String getData() {
+        return data;
+    }
+
+    // Чтение изменений из локального файла.
+    // .json — файл того же формата, что и на сервере (все пары добавляются);
+    // иначе CSV: "add,domain,ip", "delete,domain-или-IP" или просто "domain,ip"; строки с # пропускаются
+    public static List<PairChange> readFile(String path) throws IOException {
+        List<PairChange> changes = new ArrayList<>();
+        if (path.toLowerCase(Locale.ROOT).endsWith(".json")) {
+            try (InputStream inputStream = new BufferedInputStream(new FileInputStream(path))) {
+                AddressesJsonParser.parse(inputStream, (domain, ip) -> changes.add(add(domain, ip)));
+            }
+            return changes;
+        }
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(path), StandardCharsets.UTF_8))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split(",", -1);
+                for (int i = 0; i < fields.length; i++) {
+                    fields[i] = fields[i].trim();
+                }
+                if (fields[0].equalsIgnoreCase("add") && fields.length == 3) {
+                    changes.add(add(fields[1], fields[2]));
+                } else if (fields[0].equalsIgnoreCase("delete") && fields.length == 2) {
+                    changes.add(delete(fields[1]));
+                } else if (fields.length == 2) {
+                    changes.add(add(fields[0], fields[1]));
+                } else {
+                    throw new IOException("Неверный формат строки " + lineNumber + ": " + line);
+                }
+            }
+        }
+        return changes;
+    }
+
+    @Override
+    public String toString() {
+        return type == Type.ADD ? "добавление " + domain + " - " + ip : "удаление " + data;
+    }
+}
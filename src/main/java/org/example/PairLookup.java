@@ -0,0 +1,11 @@
+package org.example;
+
+// Поиск domain-IP пар: индекс в памяти или локальный снимок
+public interface PairLookup {
+
+    // Получение IP по domain (без учета регистра), null если не найден
+    String getIP(String domain);
+
+    // Получение domain по IP (с нормализацией), null если не найден
+    String getDomain(String ip);
+}
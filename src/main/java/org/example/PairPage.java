@@ -0,0 +1,46 @@
+package org.example;
+
+// Страница результата поиска: записи индекса на странице и общее число совпадений
+public class PairPage {
+    private final DomainIPIndex index;
+    private final int[] records;
+    private final int offset;
+    private final int total;
+
+    PairPage(DomainIPIndex index, int[] records, int offset, int total) {
+        this.index = index;
+        this.records = records;
+        this.offset = offset;
+        this.total = total;
+    }
+
+    // Номера записей индекса на странице
+    public int[] getRecords() {
+        return records;
+    }
+
+    // Число записей на странице
+    public int size() {
+        return records.length;
+    }
+
+    public String getDomain(int n) {
+        return index.domainAt(records[n]);
+    }
+
+    public String getIP(int n) {
+        return index.ipStringAt(records[n]);
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public boolean hasMore() {
+        return offset + records.length < total;
+    }
+}
@@ -0,0 +1,228 @@
+package org.example;
+
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.SftpException;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Потокобезопасный сервис поиска и изменения domain-IP пар без интерактивного меню.
+// Блокирующий ввод-вывод SFTP выполняется на ограниченном пуле потоков (виртуальные потоки на Java 21+),
+// каналы берутся из SFTPConnectionPool, а все вызывающие потоки используют общий кэш индекса.
+// Одновременные запросы ждут одну общую проверку или загрузку файла вместо отдельной для каждого.
+public class PairResolver implements AutoCloseable {
+    private static final SftpMetrics metrics = SftpMetrics.get();
+    private final SFTPConnectionPool pool;
+    private final boolean ownsPool;
+    private final ExecutorService executor;
+    // ограничение одновременных задач для виртуальных потоков, которые создаются без лимита
+    private final Semaphore slots;
+    private volatile PairCache cache;
+    private CompletableFuture<DomainIPIndex> loading; // текущая загрузка индекса, общая для всех запросов
+
+    public PairResolver(String host, int port, String username, String password) throws JSchException {
+        this(new SFTPConnectionPool(host, port, username, password), true, 16);
+    }
+
+    public PairResolver(SFTPConnectionPool pool, int maxConcurrency) {
+        this(pool, false, maxConcurrency);
+    }
+
+    private PairResolver(SFTPConnectionPool pool, boolean ownsPool, int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("Неверное число потоков: " + maxConcurrency);
+        }
+        this.pool = pool;
+        this.ownsPool = ownsPool;
+        ExecutorService virtual = newVirtualExecutor();
+        if (virtual != null) {
+            this.executor = virtual;
+            this.slots = new Semaphore(maxConcurrency);
+        } else {
+            this.executor = newFixedExecutor(maxConcurrency);
+            this.slots = null;
+        }
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor через reflection, чтобы сборка оставалась на Java 8
+    private static ExecutorService newVirtualExecutor() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    // Задачи выполняются на виртуальных потоках (Java 21+), иначе на фиксированном пуле
+    public boolean usesVirtualThreads() {
+        return slots != null;
+    }
+
+    private static ExecutorService newFixedExecutor(int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "sftp-resolver-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Действие над каналом из пула
+    private interface SftpTask<T> {
+        T run() throws JSchException, SftpException;
+    }
+
+    private <T> CompletableFuture<T> submit(SftpTask<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    if (slots != null) {
+                        slots.acquire();
+                    }
+                    try {
+                        result.complete(task.run());
+                    } finally {
+                        if (slots != null) {
+                            slots.release();
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    result.completeExceptionally(e);
+                } catch (Exception | Error e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(new JSchException("Сервис закрыт", e));
+        }
+        return result;
+    }
+
+    // Актуальный индекс: из кэша без обращения к серверу или через общую для всех запросов загрузку
+    public CompletableFuture<DomainIPIndex> getIndexAsync() {
+        PairCache current = cache;
+        // индекс читается один раз: между проверкой и повторным чтением кэш мог быть сброшен
+        DomainIPIndex index = current != null ? current.getIndex() : null;
+        if (index != null && SFTPClient.isFresh(current)) {
+            return CompletableFuture.completedFuture(index);
+        }
+        synchronized (this) {
+            if (loading != null) {
+                return loading;
+            }
+            CompletableFuture<DomainIPIndex> future = submit(() -> pool.execute(channelSftp -> {
+                cache = SFTPClient.cacheOf(channelSftp);
+                return SFTPClient.currentIndex(channelSftp);
+            }));
+            loading = future;
+            future.whenComplete((loaded, error) -> {
+                synchronized (this) {
+                    if (loading == future) {
+                        loading = null;
+                    }
+                }
+            });
+            return future;
+        }
+    }
+
+    // Время поиска в памяти учитывается в фазе LOOKUP отдельно от получения индекса
+    public CompletableFuture<String> getIPAsync(String domain) {
+        return getIndexAsync().thenApply(index -> {
+            long start = System.nanoTime();
+            String ip = index.getIP(domain);
+            metrics.record(SftpMetrics.Phase.LOOKUP, start);
+            return ip;
+        });
+    }
+
+    public CompletableFuture<String> getDomainAsync(String ip) {
+        return getIndexAsync().thenApply(index -> {
+            long start = System.nanoTime();
+            String domain = index.getDomain(ip);
+            metrics.record(SftpMetrics.Phase.LOOKUP, start);
+            return domain;
+        });
+    }
+
+    public CompletableFuture<List<BatchResult>> applyBatchAsync(List<PairChange> changes) {
+        return submit(() -> pool.execute(channelSftp -> SFTPClient.applyBatch(channelSftp, changes)));
+    }
+
+    public CompletableFuture<BatchResult> addPairAsync(String domain, String ip) {
+        return applyBatchAsync(Collections.singletonList(PairChange.add(domain, ip))).thenApply(r -> r.get(0));
+    }
+
+    public CompletableFuture<BatchResult> deletePairAsync(String data) {
+        return applyBatchAsync(Collections.singletonList(PairChange.delete(data))).thenApply(r -> r.get(0));
+    }
+
+    // IP по domain (без учета регистра), null если не найден
+    public String getIP(String domain) throws JSchException, SftpException {
+        return await(getIPAsync(domain));
+    }
+
+    // Domain по IP (с нормализацией), null если не найден
+    public String getDomain(String ip) throws JSchException, SftpException {
+        return await(getDomainAsync(ip));
+    }
+
+    public BatchResult addPair(String domain, String ip) throws JSchException, SftpException {
+        return await(addPairAsync(domain, ip));
+    }
+
+    public BatchResult deletePair(String data) throws JSchException, SftpException {
+        return await(deletePairAsync(data));
+    }
+
+    public List<BatchResult> applyBatch(List<PairChange> changes) throws JSchException, SftpException {
+        return await(applyBatchAsync(changes));
+    }
+
+    // Ожидание результата с исходным типом исключения
+    private static <T> T await(CompletableFuture<T> future) throws JSchException, SftpException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JSchException("Ожидание прервано", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SftpException) {
+                throw (SftpException) cause;
+            }
+            if (cause instanceof JSchException) {
+                throw (JSchException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new JSchException(cause.getMessage(), cause);
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        if (ownsPool) {
+            pool.close();
+        }
+    }
+}
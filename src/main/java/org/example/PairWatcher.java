@@ -0,0 +1,202 @@
+package org.example;
+
+import com.jcraft.jsch.*;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Фоновое наблюдение за json-файлом на сервере.
+// Файл проверяется по mtime/size через отдельный канал; при изменении загружается и разбирается в фоновом потоке,
+// новый неизменяемый индекс публикуется через volatile-ссылку. Поиск не обращается к серверу и не блокируется.
+public class PairWatcher implements PairLookup, AutoCloseable {
+
+    // Уведомление о замене индекса; вызывается в потоке наблюдателя
+    public interface ChangeListener {
+        void indexChanged(DomainIPIndex previous, DomainIPIndex current);
+    }
+
+    private final SFTPConnection connection;
+    private final long intervalMillis;
+    private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "sftp-watcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile DomainIPIndex index;
+    // канал и кэш используются только потоком наблюдателя
+    private ChannelSftp channel;
+    private PairCache cache;
+    // кэш считается проверенным наблюдателем (поиск не обращается к серверу), только пока проверки успешны;
+    // после ошибки поиск возвращается к обычной проверке по TTL и mtime/size
+    private boolean confirming;
+    // ошибка последней проверки; null, если она прошла успешно
+    private volatile Exception lastError;
+
+    public PairWatcher(SFTPConnection connection, long intervalMillis) {
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException("Неверный интервал проверки: " + intervalMillis);
+        }
+        this.connection = connection;
+        this.intervalMillis = intervalMillis;
+    }
+
+    public void addListener(ChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(ChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    // Первая загрузка индекса и запуск периодической проверки. Загрузка выполняется в потоке наблюдателя
+    // (канал и кэш используются только им), вызывающий поток ждет ее завершения и получает ее ошибки
+    public void start() throws JSchException, SftpException {
+        try {
+            scheduler.submit(() -> {
+                openChannel();
+                check();
+                return null;
+            }).get();
+        } catch (InterruptedException e) {
+            close();
+            Thread.currentThread().interrupt();
+            throw new JSchException("Запуск наблюдателя прерван", e);
+        } catch (ExecutionException e) {
+            close();
+            Throwable cause = e.getCause();
+            if (cause instanceof JSchException) {
+                throw (JSchException) cause;
+            }
+            if (cause instanceof SftpException) {
+                throw (SftpException) cause;
+            }
+            throw new JSchException(cause.getMessage(), cause);
+        }
+        scheduler.scheduleWithFixedDelay(this::poll, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void openChannel() throws JSchException, SftpException {
+        // сессия восстанавливается, если она была разорвана
+        ChannelSftp primary = connection.ensureConnected();
+        channel = connection.openChannel();
+        // тот же каталог, что и у основного канала, чтобы кэш был общим
+        if (primary != null) {
+            channel.cd(primary.pwd());
+        }
+        if (cache == null) {
+            cache = SFTPClient.watch(channel);
+            confirming = true;
+        }
+    }
+
+    private void poll() {
+        try {
+            if (channel == null || !channel.isConnected()) {
+                openChannel();
+            }
+            check();
+            confirm();
+        } catch (SftpException e) {
+            fail(e);
+            System.err.println("Ошибка проверки файла на сервере: " + e.getMessage());
+            if (e.id == ChannelSftp.SSH_FX_CONNECTION_LOST || e.id == ChannelSftp.SSH_FX_NO_CONNECTION) {
+                closeChannel();
+            }
+        } catch (JSchException e) {
+            // сессия разорвана; повтор при следующей проверке
+            fail(e);
+            System.err.println("Наблюдатель не может открыть канал: " + e.getMessage());
+            closeChannel();
+        } catch (RuntimeException e) {
+            // исключение остановило бы периодическую задачу
+            fail(e);
+            System.err.println("Ошибка наблюдателя: " + e);
+        }
+    }
+
+    // Успешная проверка: кэш снова подтверждается наблюдателем
+    private void confirm() {
+        lastError = null;
+        if (!confirming && cache != null) {
+            cache.addWatcher();
+            confirming = true;
+        }
+    }
+
+    // Ошибка проверки: кэш больше не считается актуальным без обращения к серверу
+    private void fail(Exception e) {
+        lastError = e;
+        if (confirming) {
+            cache.removeWatcher();
+            confirming = false;
+        }
+    }
+
+    // Проверка файла; изменения, сделанные через SFTPClient в этом процессе, тоже публикуются
+    private void check() throws SftpException {
+        DomainIPIndex current = SFTPClient.refreshIndex(channel);
+        DomainIPIndex previous = index;
+        if (current == previous) {
+            return;
+        }
+        index = current;
+        for (ChangeListener listener : listeners) {
+            try {
+                listener.indexChanged(previous, current);
+            } catch (RuntimeException e) {
+                System.err.println("Ошибка обработчика изменений: " + e);
+            }
+        }
+    }
+
+    private void closeChannel() {
+        if (channel != null && channel.isConnected()) {
+            channel.disconnect();
+        }
+        channel = null;
+    }
+
+    // Ошибка последней проверки файла; null, если она прошла успешно.
+    // Пока проверки не проходят, индекс наблюдателя может быть устаревшим
+    public Exception getLastError() {
+        return lastError;
+    }
+
+    // Текущий индекс; null до первой загрузки
+    public DomainIPIndex getIndex() {
+        return index;
+    }
+
+    @Override
+    public String getIP(String domain) {
+        DomainIPIndex current = index;
+        return current != null ? current.getIP(domain) : null;
+    }
+
+    @Override
+    public String getDomain(String ip) {
+        DomainIPIndex current = index;
+        return current != null ? current.getDomain(ip) : null;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (cache != null && confirming) {
+            cache.removeWatcher();
+        }
+        cache = null;
+        confirming = false;
+        closeChannel();
+    }
+}
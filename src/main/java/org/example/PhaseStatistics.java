@@ -0,0 +1,50 @@
+package org.example;
+
+// Сводка задержек одной фазы в микросекундах (значение атрибута JMX)
+public class PhaseStatistics {
+    private final String name;
+    private final long count;
+    private final double meanMicros;
+    private final long p50Micros;
+    private final long p99Micros;
+    private final long maxMicros;
+
+    PhaseStatistics(String name, LatencyHistogram histogram) {
+        this.name = name;
+        this.count = histogram.getCount();
+        this.meanMicros = histogram.getMean() / 1000;
+        this.p50Micros = histogram.getPercentile(50) / 1000;
+        this.p99Micros = histogram.getPercentile(99) / 1000;
+        this.maxMicros = histogram.getMax() / 1000;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMeanMicros() {
+        return meanMicros;
+    }
+
+    public long getP50Micros() {
+        return p50Micros;
+    }
+
+    public long getP99Micros() {
+        return p99Micros;
+    }
+
+    public long getMaxMicros() {
+        return maxMicros;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: n=%d, mean=%.1f мкс, p50=%d мкс, p99=%d мкс, max=%d мкс",
+                name, count, meanMicros, p50Micros, p99Micros, maxMicros);
+    }
+}
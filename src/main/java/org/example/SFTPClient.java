@@ -3,10 +3,56 @@ package org.example;
 import com.jcraft.jsch.*;
 
 import java.io.*;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 public class SFTPClient {
     private static final SFTPConnection sftpConnection = new SFTPConnection();
+    // кэш индекса для каждого сервера и каталога
+    private static final Map<String, PairCache> caches = new ConcurrentHashMap<>();
+    // время (мс), в течение которого индекс используется без проверки файла на сервере
+    private static volatile long cacheTtlMillis = Long.getLong("sftp.cache.ttl", 0L);
+    // число попыток изменения файла при конфликтах с другими клиентами
+    private static final int MAX_SAVE_ATTEMPTS = 5;
+    // блокировка записи между клиентами: каталог в каталоге данных (mkdir атомарен и не создает существующий)
+    private static final String WRITE_LOCK = ".sftp-client.lock";
+    // блокировка, mtime которой дольше этого времени (мс) не обновлял владелец, считается оставленной упавшим клиентом
+    private static final long LOCK_STALE_MILLIS = Long.getLong("sftp.lock.stale", 30_000L);
+    // наибольшая дописываемая на месте порция: меньше данных одного пакета SSH_FXP_WRITE в JSch (~32 КБ)
+    private static final int MAX_APPEND_BYTES = 16 * 1024;
+    // размер буфера при потоковой записи файла на сервер
+    private static final int UPLOAD_BUFFER_SIZE = 32 * 1024;
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+    // выбор addresses.json.gz вместо addresses.json, если на сервере есть оба файла
+    private static volatile boolean preferCompressed = Boolean.getBoolean("sftp.gzip");
+    // число записей на странице при поиске по шаблону
+    private static final int SEARCH_PAGE_SIZE = 20;
+    // путь к json-файлу на сервере; если не задан, файл ищется в текущем каталоге
+    private static volatile String jsonFilePath = System.getProperty("sftp.json.path");
+    // локальные снимки индекса для быстрого старта; по умолчанию отключены
+    private static volatile SnapshotStore snapshots = System.getProperty("sftp.snapshot.dir") != null
+            ? new SnapshotStore(Paths.get(System.getProperty("sftp.snapshot.dir"))) : null;
+    // число каналов для параллельной загрузки шардов
+    private static final int SHARD_CHANNELS = Integer.getInteger("sftp.shard.channels", 4);
+    // Потоки дополнительных каналов загрузки шардов, общие для всех загрузок; простаивающие потоки завершаются сами
+    private static final ExecutorService SHARD_EXECUTOR = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "sftp-shard");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // задержки по фазам, объем переданных данных и попадания в кэш (JMX org.example:type=SftpMetrics)
+    private static final SftpMetrics metrics = SftpMetrics.get();
 
     public static void main(String[] args) {
         Scanner scanner = new Scanner(System.in);
@@ -25,7 +71,12 @@ public class SFTPClient {
             sftpConnection.connect(host, port, username, password);
             System.out.println("Успешное подключение к серверу!");
 
-            showMenu(scanner);
+            // пакетный режим: java -jar cli.jar --batch <файл .csv или .json>
+            if (args.length == 2 && "--batch".equals(args[0])) {
+                runBatch(args[1]);
+            } else {
+                showMenu(scanner);
+            }
 
         } catch (Exception e) {
             System.err.println("Ошибка: " + e);
@@ -34,27 +85,90 @@ public class SFTPClient {
         }
     }
 
+    // Постраничный вывод результатов поиска; pages возвращает страницу по смещению
+    private static void showPages(Scanner scanner, IntFunction<PairPage> pages) {
+        int offset = 0;
+        while (true) {
+            PairPage page = pages.apply(offset);
+            if (page.getTotal() == 0) {
+                System.out.println("Совпадений не найдено!");
+                return;
+            }
+            for (int n = 0; n < page.size(); n++) {
+                System.out.println("Domain: " + page.getDomain(n) + ", IP: " + page.getIP(n));
+            }
+            offset += page.size();
+            System.out.println("Показано " + offset + " из " + page.getTotal());
+            if (!page.hasMore()) {
+                return;
+            }
+            System.out.println("Enter — следующая страница, любой другой ввод — завершить поиск");
+            if (!scanner.nextLine().isEmpty()) {
+                return;
+            }
+        }
+    }
+
+    // Поиск по диапазону IP: CIDR ("10.20.0.0/16"), диапазон ("10.0.0.1-10.0.0.255") или один адрес
+    private static void showRangePages(ChannelSftp channelSftp, Scanner scanner, String query) throws SftpException {
+        // все страницы берутся из одной версии индекса
+        IPRangeIndex ranges = getIndex(channelSftp).getRangeIndex();
+        int dash = query.indexOf('-');
+        try {
+            if (query.contains("/")) {
+                showPages(scanner, offset -> ranges.findCidr(query, offset, SEARCH_PAGE_SIZE));
+            } else {
+                String from = (dash >= 0 ? query.substring(0, dash) : query).trim();
+                String to = (dash >= 0 ? query.substring(dash + 1) : query).trim();
+                showPages(scanner, offset -> ranges.findRange(from, to, offset, SEARCH_PAGE_SIZE));
+            }
+        } catch (IllegalArgumentException e) {
+            // неверный запрос обнаруживается при получении первой страницы
+            System.out.println(e.getMessage());
+        }
+    }
+
+    // Применение изменений из локального файла с выводом результата по каждой строке
+    private static void runBatch(String path) throws SftpException {
+        List<PairChange> changes;
+        try {
+            changes = PairChange.readFile(path);
+        } catch (IOException e) {
+            System.err.println("Ошибка чтения файла " + path + ": " + e.getMessage());
+            return;
+        }
+        List<BatchResult> results = applyBatch(sftpConnection.getChannelSftp(), changes);
+        long applied = results.stream().filter(BatchResult::isApplied).count();
+        results.forEach(System.out::println);
+        System.out.println("Применено изменений: " + applied + " из " + results.size());
+    }
+
     private static void showMenu(Scanner scanner) {
         ChannelSftp channelSftp = null;
         try {
-            channelSftp = sftpConnection.getChannelSftp();
-
             while (true) {
+                // канал или сессия восстанавливаются перед командой, если соединение было разорвано
+                channelSftp = sftpConnection.ensureConnected();
                 System.out.println("\nВыберите действие:");
                 System.out.println("1. Получить domain-IP пары");
                 System.out.println("2. Получить IP по domain");
                 System.out.println("3. Получить domain по IP");
                 System.out.println("4. Добавить новую domain-IP пару");
                 System.out.println("5. Удалить domain-IP пару");
-                System.out.println("6. Выход");
+                System.out.println("6. Поиск domain по шаблону");
+                System.out.println("7. Поиск domain по диапазону IP или подсети");
+                System.out.println("8. Выход");
 
                 String c = scanner.nextLine();
                 switch (c) {
                     case "1":
-                        List<Map<String, String>> pairs = getDomainIPPairs(channelSftp);
-                        pairs.sort(Comparator.comparing(p -> p.get("domain")));
-                        pairs.forEach(pair ->
-                                System.out.println("Domain: " + pair.get("domain") + ", IP: " + pair.get("ip")));
+                        DomainIPIndex index = getIndex(channelSftp);
+                        // порядок по домену берется из индекса поиска, который строится один раз для версии файла
+                        DomainSearchIndex sorted = index.getSearchIndex();
+                        for (int n = 0; n < sorted.size(); n++) {
+                            int i = sorted.byDomain(n);
+                            System.out.println("Domain: " + index.domainAt(i) + ", IP: " + index.ipStringAt(i));
+                        }
                         break;
                     case "2":
                         System.out.println("Введите domain для получения IP: ");
@@ -79,6 +193,18 @@ public class SFTPClient {
                         deletePair(channelSftp,data);
                         break;
                     case "6":
+                        System.out.println("Введите шаблон domain (например, api-* или *.corp.example.com): ");
+                        String pattern = scanner.nextLine();
+                        // все страницы берутся из одной версии индекса
+                        DomainSearchIndex search = getIndex(channelSftp).getSearchIndex();
+                        showPages(scanner, offset -> search.find(pattern, offset, SEARCH_PAGE_SIZE));
+                        break;
+                    case "7":
+                        System.out.println("Введите подсеть (10.20.0.0/16), диапазон (10.0.0.1-10.0.0.255) или IP: ");
+                        String range = scanner.nextLine();
+                        showRangePages(channelSftp, scanner, range);
+                        break;
+                    case "8":
                         System.out.println("Выход...");
                         return;
                     default:
@@ -87,108 +213,513 @@ public class SFTPClient {
             }
         } catch (SftpException e) {
             System.err.println("Err" + e);
+        } catch (JSchException e) {
+            System.err.println("Не удалось восстановить соединение: " + e.getMessage());
         } finally {
             if (channelSftp != null && channelSftp.isConnected())
                 channelSftp.disconnect();
         }
     }
 
-    // Получение domain-IP пары
-    private static List<Map<String, String>> getDomainIPPairs(ChannelSftp channelSftp) throws SftpException {
-        String content = getFileContent(channelSftp);
-        List<Map<String, String>> pairs = new ArrayList<>();
+    public static void setCacheTtl(long millis) {
+        cacheTtlMillis = millis;
+    }
+
+    // Явный путь к json-файлу; null — поиск первого json-файла в текущем каталоге
+    public static void setJsonFilePath(String path) {
+        jsonFilePath = path;
+        for (PairCache cache : caches.values()) {
+            cache.forgetFile();
+        }
+    }
+
+    public static void setPreferCompressed(boolean prefer) {
+        preferCompressed = prefer;
+        for (PairCache cache : caches.values()) {
+            cache.forgetFile();
+        }
+    }
+
+    // Каталог локальных снимков индекса; null — снимки не используются
+    public static void setSnapshotDirectory(Path directory) {
+        snapshots = directory != null ? new SnapshotStore(directory) : null;
+    }
+
+    // Кэш общий для всех каналов к одному серверу и каталогу, в том числе для каналов из пула
+    private static PairCache cacheFor(ChannelSftp channelSftp) throws SftpException {
+        String key;
+        try {
+            Session session = channelSftp.getSession();
+            key = session.getUserName() + "@" + session.getHost() + ":" + session.getPort() + channelSftp.pwd();
+        } catch (JSchException e) {
+            throw new SftpException(ChannelSftp.SSH_FX_NO_CONNECTION, e.getMessage(), e);
+        }
+        return caches.computeIfAbsent(key, PairCache::new);
+    }
+
+    // Кэш для канала и проверка его актуальности без обращения к серверу (для PairResolver)
+    static PairCache cacheOf(ChannelSftp channelSftp) throws SftpException {
+        return cacheFor(channelSftp);
+    }
+
+    static boolean isFresh(PairCache cache) {
+        return cache.isFresh(cacheTtlMillis);
+    }
+
+    // Индекс из кэша или с сервера с учетом TTL
+    static DomainIPIndex currentIndex(ChannelSftp channelSftp) throws SftpException {
+        return getIndex(channelSftp);
+    }
+
+    // Регистрация наблюдателя за файлом: пока его проверки успешны, поиск использует кэш без проверки файла
+    static PairCache watch(ChannelSftp channelSftp) throws SftpException {
+        PairCache cache = cacheFor(channelSftp);
+        cache.addWatcher();
+        return cache;
+    }
 
-        if (!content.trim().isEmpty() && content.contains("addresses")) {
-            // регулярное выражение, позволяющее пробелы между ":" и "["
-            String[] parts = content.split(":\\s*\\[");
-            if (parts.length < 2) {
-                System.err.println("Неверный формат JSON: отсутствует ожидаемый разделитель \":[\".");
-                return pairs;
+    // Проверка файла на сервере и загрузка при изменении (для наблюдателя)
+    static DomainIPIndex refreshIndex(ChannelSftp channelSftp) throws SftpException {
+        return getIndex(channelSftp, true);
+    }
+
+    // Источник для поиска: индекс в памяти, а до его загрузки — локальный снимок, если он есть.
+    // Снимок проверяется по файлу на сервере в фоне и заменяется индексом
+    private static PairLookup getLookup(ChannelSftp channelSftp) throws SftpException {
+        PairCache cache = cacheFor(channelSftp);
+        SnapshotStore store = snapshots;
+        if (store != null && cache.getIndex() == null) {
+            if (cache.markSnapshotOpened()) {
+                IndexSnapshot snapshot = store.open(cache.getKey());
+                if (snapshot != null) {
+                    cache.setSnapshot(snapshot);
+                    revalidateSnapshot(channelSftp, cache, snapshot, store);
+                }
             }
-            String jsonArrayPart = parts[1];
-            String[] closingBracketSplit = jsonArrayPart.split("]");
-            if (closingBracketSplit.length < 1) {
-                System.err.println("Неверный формат JSON: отсутствует закрывающая скобка ']'.");
-                return pairs;
+            IndexSnapshot snapshot = cache.getSnapshot();
+            if (snapshot != null) {
+                return snapshot;
             }
-            String jsonArray = closingBracketSplit[0].replaceAll("\\s+", ""); // взятие массива JSON
-            String[] entries = jsonArray.split("},\\{"); // разделение пар
-
-            for (String entry : entries) {
-                entry = entry.replaceAll("[{}\"]", ""); // удаление фигурных скобок и кавычек
-                String[] fields = entry.split(",");
+        }
+        return getIndex(channelSftp);
+    }
 
-                Map<String, String> pair = new HashMap<>();
-                for (String field : fields) {
-                    String[] keyValue = field.split(":");
-                    if (keyValue.length == 2) {
-                        pair.put(keyValue[0].trim(), keyValue[1].trim());
+    // Фоновая проверка снимка через отдельный канал той же сессии (ChannelSftp не потокобезопасен)
+    private static void revalidateSnapshot(ChannelSftp channelSftp, PairCache cache, IndexSnapshot snapshot,
+                                           SnapshotStore store) throws SftpException {
+        Session session;
+        try {
+            session = channelSftp.getSession();
+        } catch (JSchException e) {
+            throw new SftpException(ChannelSftp.SSH_FX_NO_CONNECTION, e.getMessage(), e);
+        }
+        String directory = channelSftp.pwd();
+        store.execute(() -> {
+            ChannelSftp channel = null;
+            try {
+                channel = (ChannelSftp) session.openChannel("sftp");
+                channel.connect();
+                channel.cd(directory);
+                synchronized (cache.loadLock()) {
+                    if (cache.getIndex() != null) {
+                        return;
+                    }
+                    String jsonFileName = jsonFilePath != null ? jsonFilePath : snapshot.getFileName();
+                    SftpATTRS attrs = statOrNull(channel, jsonFileName);
+                    if (snapshot.matches(jsonFileName, attrs)) {
+                        // файл не менялся — индекс строится из снимка без скачивания
+                        cache.update(jsonFileName, attrs, snapshot.toIndex(), null);
                     } else {
-                        System.err.println("Неверный формат пары: " + field);
+                        loadIndex(channel, cache, null, null);
                     }
                 }
-                pairs.add(pair);
+            } catch (JSchException | SftpException | RuntimeException e) {
+                System.err.println("Не удалось проверить локальный снимок: " + e.getMessage());
+            } finally {
+                // устаревший или непроверенный снимок больше не используется
+                cache.setSnapshot(null);
+                if (channel != null) {
+                    channel.disconnect();
+                }
             }
+        });
+    }
+
+    private static void saveSnapshot(PairCache cache) {
+        SnapshotStore store = snapshots;
+        // в снимке хранятся только пары: индекс из него потерял бы записи без разбора при перезаписи файла
+        DomainIPIndex index = cache.getIndex();
+        if (store != null && !cache.isShard() && index != null && index.foreignCount() == 0) {
+            store.save(cache);
         }
-        return pairs;
     }
 
-    // Поиск json-файла на сервере
-    private static String findJsonFile(ChannelSftp channelSftp) throws SftpException {
-        // получение списка файлов в текущей директории
-        @SuppressWarnings("unchecked")
-        Vector<ChannelSftp.LsEntry> files = channelSftp.ls(".");
+    // Получение индекса domain-IP пар (из кэша или с сервера)
+    private static DomainIPIndex getIndex(ChannelSftp channelSftp) throws SftpException {
+        return getIndex(channelSftp, false);
+    }
+
+    // revalidate — проверить файл на сервере даже при неистекшем TTL (перед изменениями)
+    private static DomainIPIndex getIndex(ChannelSftp channelSftp, boolean revalidate) throws SftpException {
+        PairCache cache = cacheFor(channelSftp);
+        // индекс читается один раз: кэш могут сбросить между проверкой и чтением
+        DomainIPIndex cached = cache.getIndex();
+        if (!revalidate && cached != null && cache.isFresh(cacheTtlMillis)) {
+            metrics.cacheHit();
+            return cached;
+        }
+        long generation = cache.getGeneration();
+        ShardSet shards = cache.getShards();
+        if (shards != null && jsonFilePath == null) {
+            // известные шарды проверяются stat без блокировки загрузки; список каталога запрашивается,
+            // только если файл шарда пропал (набор объединен или число шардов изменилось)
+            SftpATTRS[] attrs = statShards(channelSftp, shards);
+            DomainIPIndex current = attrs != null && shards.matches(attrs) ? cache.getIndex() : null;
+            if (current != null) {
+                cache.touch();
+                metrics.revalidated();
+                return current;
+            }
+            synchronized (cache.loadLock()) {
+                DomainIPIndex loaded = cache.getIndex();
+                if (cache.getGeneration() != generation && loaded != null) {
+                    metrics.cacheHit();
+                    return loaded;
+                }
+                metrics.cacheMiss();
+                return attrs != null && shards == cache.getShards()
+                        ? refreshShards(channelSftp, cache, shards, attrs)
+                        : loadShards(channelSftp, cache, listDirectory(channelSftp));
+            }
+        }
+        String jsonFileName = cache.getFileName();
+        SftpATTRS attrs = null;
+        if (cached != null && jsonFileName != null) {
+            // одна дешевая проверка вместо повторного скачивания файла
+            attrs = statOrNull(channelSftp, jsonFileName);
+            // индекс читается после проверки: его могли заменить новой версией или сбросить
+            DomainIPIndex current = cache.matches(attrs) ? cache.getIndex() : null;
+            if (current != null) {
+                cache.touch();
+                metrics.revalidated();
+                return current;
+            }
+            if (attrs == null) {
+                // файл переименован или удален — путь будет найден заново
+                cache.forgetFile();
+            }
+        }
+        synchronized (cache.loadLock()) {
+            // файл мог быть уже загружен другим потоком, пока этот ждал блокировку
+            DomainIPIndex loaded = cache.getIndex();
+            if (cache.getGeneration() != generation && loaded != null) {
+                metrics.cacheHit();
+                return loaded;
+            }
+            metrics.cacheMiss();
+            return loadIndex(channelSftp, cache, jsonFileName, attrs);
+        }
+    }
+
+    // Загрузка индекса по сохраненному или заданному пути; список файлов каталога запрашивается,
+    // только если путь не задан и еще не известен или файла по нему больше нет
+    // statName и attrs — результат уже выполненной проверки файла, чтобы не запрашивать его повторно
+    private static DomainIPIndex loadIndex(ChannelSftp channelSftp, PairCache cache, String statName, SftpATTRS attrs)
+            throws SftpException {
+        String jsonFileName = jsonFilePath != null ? jsonFilePath : cache.getFileName();
+        if (jsonFileName == null) {
+            return loadShards(channelSftp, cache, listDirectory(channelSftp));
+        }
+        try {
+            if (attrs == null || !jsonFileName.equals(statName)) {
+                long start = System.nanoTime();
+                attrs = channelSftp.stat(jsonFileName);
+                metrics.record(SftpMetrics.Phase.STAT, start);
+            }
+            return getDomainIPPairs(channelSftp, jsonFileName, attrs, cache);
+        } catch (SftpException e) {
+            if (e.id != ChannelSftp.SSH_FX_NO_SUCH_FILE) {
+                throw e;
+            }
+            if (jsonFilePath != null) {
+                throw new SftpException(e.id, "JSON файл не найден: " + jsonFileName, e);
+            }
+            // файл переименован или удален — повторный поиск в каталоге
+            cache.forgetFile();
+            return loadShards(channelSftp, cache, listDirectory(channelSftp));
+        }
+    }
+
+    // Загрузка по списку файлов каталога: набор шардов, если он есть, иначе один json-файл.
+    // Вызывается под блокировкой загрузки кэша каталога
+    private static DomainIPIndex loadShards(ChannelSftp channelSftp, PairCache cache,
+                                            List<ChannelSftp.LsEntry> files) throws SftpException {
+        ShardSet found = ShardSet.detect(cache.getKey(), files, preferCompressed);
+        if (found == null) {
+            if (cache.getShards() != null) {
+                // шарды объединены в один файл
+                cache.forgetFile();
+            }
+            ChannelSftp.LsEntry entry = findJsonFile(files);
+            return getDomainIPPairs(channelSftp, entry.getFilename(), entry.getAttrs(), cache);
+        }
+        ShardSet shards = cache.getShards();
+        if (!found.sameFiles(shards)) {
+            // новый набор или изменилось число шардов — кэши шардов создаются заново
+            cache.forgetFile();
+            cache.setShards(found);
+            shards = found;
+        }
+        return refreshShards(channelSftp, cache, shards, shards.attrsOf(files));
+    }
+
+    // Загрузка изменившихся шардов набора по их атрибутам и объединение индекса.
+    // Вызывается под блокировкой загрузки кэша каталога
+    private static DomainIPIndex refreshShards(ChannelSftp channelSftp, PairCache cache, ShardSet shards,
+                                               SftpATTRS[] attrs) throws SftpException {
+        List<Integer> stale = new ArrayList<>();
+        for (int i = 0; i < shards.size(); i++) {
+            if (!shards.cache(i).matches(attrs[i])) {
+                stale.add(i);
+            }
+        }
+        if (stale.isEmpty() && cache.getIndex() != null) {
+            cache.touch();
+            return cache.getIndex();
+        }
+        fetchShards(channelSftp, shards, stale, attrs);
+        DomainIPIndex merged = shards.merge();
+        cache.updateMerged(merged);
+        return merged;
+    }
+
+    // Атрибуты файлов шардов; null, если какого-то файла больше нет
+    private static SftpATTRS[] statShards(ChannelSftp channelSftp, ShardSet shards) throws SftpException {
+        SftpATTRS[] attrs = new SftpATTRS[shards.size()];
+        for (int i = 0; i < attrs.length; i++) {
+            attrs[i] = statOrNull(channelSftp, shards.fileName(i));
+            if (attrs[i] == null) {
+                return null;
+            }
+        }
+        return attrs;
+    }
+
+    // Параллельная загрузка шардов: канал вызывающего потока и дополнительные каналы той же сессии
+    // разбирают шарды из общей очереди. Если дополнительный канал не открылся, его шарды загрузят остальные
+    private static void fetchShards(ChannelSftp channelSftp, ShardSet shards, List<Integer> stale,
+                                    SftpATTRS[] attrs) throws SftpException {
+        AtomicInteger next = new AtomicInteger();
+        int workers = Math.min(stale.size(), SHARD_CHANNELS);
+        if (workers <= 1) {
+            fetchShards(channelSftp, shards, stale, attrs, next);
+            return;
+        }
+        Session session;
+        try {
+            session = channelSftp.getSession();
+        } catch (JSchException e) {
+            throw new SftpException(ChannelSftp.SSH_FX_NO_CONNECTION, e.getMessage(), e);
+        }
+        String directory = channelSftp.pwd();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int w = 1; w < workers; w++) {
+            futures.add(SHARD_EXECUTOR.submit(() -> {
+                if (next.get() >= stale.size()) {
+                    // все шарды уже разобраны другими каналами
+                    return null;
+                }
+                ChannelSftp channel;
+                try {
+                    channel = (ChannelSftp) session.openChannel("sftp");
+                    channel.connect();
+                    channel.cd(directory);
+                } catch (JSchException e) {
+                    return null;
+                }
+                try {
+                    fetchShards(channel, shards, stale, attrs, next);
+                } finally {
+                    channel.disconnect();
+                }
+                return null;
+            }));
+        }
+        SftpException error = null;
+        try {
+            fetchShards(channelSftp, shards, stale, attrs, next);
+        } catch (SftpException e) {
+            error = e;
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                if (error == null) {
+                    error = e.getCause() instanceof SftpException ? (SftpException) e.getCause()
+                            : new SftpException(ChannelSftp.SSH_FX_FAILURE, e.getCause().toString(), e.getCause());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SftpException(ChannelSftp.SSH_FX_FAILURE, "Загрузка шардов прервана", e);
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    private static void fetchShards(ChannelSftp channelSftp, ShardSet shards, List<Integer> stale,
+                                    SftpATTRS[] attrs, AtomicInteger next) throws SftpException {
+        for (int n = next.getAndIncrement(); n < stale.size(); n = next.getAndIncrement()) {
+            int i = stale.get(n);
+            getDomainIPPairs(channelSftp, shards.fileName(i), attrs[i], shards.cache(i));
+        }
+    }
+
+    // Обновление кэша после записи файла на сервер
+    private static void updateCache(ChannelSftp channelSftp, PairCache cache, String jsonFileName, DomainIPIndex index,
+                                    FileLayout layout) throws SftpException {
+        try {
+            SftpATTRS attrs = channelSftp.stat(jsonFileName);
+            if (layout != null && attrs.getSize() != layout.getFileSize()) {
+                // файл успел изменить кто-то еще — индекс будет загружен заново
+                cache.invalidate();
+                return;
+            }
+            cache.update(jsonFileName, attrs, index, layout);
+            saveSnapshot(cache);
+        } catch (SftpException e) {
+            cache.invalidate();
+        }
+    }
+
+    // Получение domain-IP пары (потоковый разбор файла) с сохранением в кэш
+    private static DomainIPIndex getDomainIPPairs(ChannelSftp channelSftp, String jsonFileName, SftpATTRS attrs,
+                                                  PairCache cache) throws SftpException {
+        DomainIPIndex.Builder pairs = new DomainIPIndex.Builder();
+        FileLayout.Builder layout = new FileLayout.Builder();
+        AddressesJsonParser.Document document;
+        boolean compressed = isCompressed(jsonFileName);
+        long loadStart = System.nanoTime();
+        // байты считаются до распаковки, время ожидания сети отделяется от времени разбора
+        SftpMetrics.CountingInputStream download = new SftpMetrics.CountingInputStream(channelSftp.get(jsonFileName));
+        try (InputStream inputStream = compressed ? new GZIPInputStream(download, GZIP_BUFFER_SIZE) : download) {
+            document = AddressesJsonParser.parse(inputStream, new AddressesJsonParser.LocatedPairHandler() {
+                @Override
+                public boolean pair(String domain, String ip, long start, long end) {
+                    if (pairs.add(domain, ip)) {
+                        layout.add();
+                        return true;
+                    }
+                    System.err.println("Неверный формат пары: " + domain + " - " + ip);
+                    return false;
+                }
+
+                // запись остается в индексе в исходном виде и возвращается в файл при перезаписи
+                @Override
+                public void unparsed(byte[] record, long start, long end) {
+                    pairs.addForeign(record);
+                }
+            });
+        } catch (IOException e) {
+            // при ошибке разбора файл не должен перезаписываться неполными данными
+            throw new SftpException(ChannelSftp.SSH_FX_BAD_MESSAGE, e.getMessage(), e);
+        }
+        DomainIPIndex index = pairs.build();
+        metrics.recordNanos(SftpMetrics.Phase.FETCH, download.getReadNanos());
+        metrics.recordNanos(SftpMetrics.Phase.PARSE, System.nanoTime() - loadStart - download.getReadNanos());
+        metrics.addBytesIn(download.getBytes());
+        metrics.addEntriesLoaded(index.size());
+        FileLayout fileLayout = null;
+        // смещения в распакованном документе не соответствуют сжатому файлу — точечная запись невозможна
+        if (document.getTail() != null && !compressed) {
+            layout.setForeignRecords(document.getRecords() > index.size());
+            fileLayout = layout.build(document.getTail(), document.getSize());
+        }
+        cache.update(jsonFileName, attrs, index, fileLayout);
+        saveSnapshot(cache);
+        return index;
+    }
+
+    // Поиск json-файла на сервере: addresses.json или сжатый addresses.json.gz.
+    // Если в каталоге есть оба вида, выбирается сжатый при включенном sftp.gzip, иначе обычный
+    // Файлы шардов не рассматриваются: они загружаются только полным набором
+    private static ChannelSftp.LsEntry findJsonFile(List<ChannelSftp.LsEntry> files) throws SftpException {
+        ChannelSftp.LsEntry other = null;
         for (ChannelSftp.LsEntry entry : files) {
-            String filename = entry.getFilename();
+            String filename = entry.getFilename().toLowerCase(Locale.ROOT);
             // пропуск служебных записей "." и ".."
-            if (!".".equals(filename) && !"..".equals(filename)
-                    && filename.toLowerCase().endsWith(".json")) {
-                return filename;
+            if (".".equals(filename) || "..".equals(filename) || ShardSet.baseName(filename) != null) {
+                continue;
             }
+            boolean compressed = filename.endsWith(".json.gz");
+            if (!compressed && !filename.endsWith(".json")) {
+                continue;
+            }
+            if (compressed == preferCompressed) {
+                return entry;
+            }
+            if (other == null) {
+                other = entry;
+            }
+        }
+        if (other != null) {
+            return other;
         }
         throw new SftpException(0, "JSON файл не найден");
     }
 
-    // Чтение файла
-    private static String getFileContent(ChannelSftp channelSftp) throws SftpException {
-        String jsonFileName = findJsonFile(channelSftp);
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(); // запись на временное хранение в виде байт
-        channelSftp.get(jsonFileName, outputStream); // запись в поток из файла
-        return outputStream.toString();
+    // Получение списка файлов в текущей директории
+    private static List<ChannelSftp.LsEntry> listDirectory(ChannelSftp channelSftp) throws SftpException {
+        long start = System.nanoTime();
+        @SuppressWarnings("unchecked")
+        Vector<ChannelSftp.LsEntry> files = channelSftp.ls(".");
+        metrics.record(SftpMetrics.Phase.LIST, start);
+        return files;
+    }
+
+    // Файл хранится на сервере в gzip; разбор и запись идут потоком через (рас)паковку
+    private static boolean isCompressed(String jsonFileName) {
+        return jsonFileName.toLowerCase(Locale.ROOT).endsWith(".gz");
     }
 
     // Получение IP по domain
     public static String getIPByDomain(ChannelSftp channelSftp, String domain) throws SftpException{
-        List<Map<String,String>> pairs = getDomainIPPairs(channelSftp);
-        return pairs.stream()
-                .filter(pair -> domain.equalsIgnoreCase(pair.get("domain")))
-                .map(pair -> pair.get("ip"))
-                .findFirst()
-                .orElse("Domain не найден!");
+        // LOOKUP — только поиск в памяти; проверка и загрузка файла учитываются в своих фазах
+        PairLookup lookup = getLookup(channelSftp);
+        long start = System.nanoTime();
+        String ip = lookup.getIP(domain);
+        metrics.record(SftpMetrics.Phase.LOOKUP, start);
+        return ip != null ? ip : "Domain не найден!";
     }
 
-    // Получение domain по IP
-    public static String getDomainByIP(ChannelSftp channelSftp, String ip) throws SftpException{
-        List<Map<String,String>> pairs = getDomainIPPairs(channelSftp);
-        String normalizedIP = normalizeIP(ip); // Нормализация IP-адреса
-        return pairs.stream()
-                .filter(pair -> normalizedIP.equals(normalizeIP(pair.get("ip")))) // Сравнение нормализованных IP
-                .map(pair -> pair.get("domain"))
-                .findFirst()
-                .orElse("IP не найден!");
+    // Поиск domain по шаблону без учета регистра: префикс ("api-*"), зона ("*.corp.example.com")
+    // или шаблон со звездочками; offset и limit задают страницу результата
+    public static PairPage findDomains(ChannelSftp channelSftp, String pattern, int offset, int limit)
+            throws SftpException {
+        return getIndex(channelSftp).getSearchIndex().find(pattern, offset, limit);
     }
 
-    // Нормализация IP-адреса (удаление ведущих нулей)
-    private static String normalizeIP(String ip) {
-        if (ip == null || ip.isEmpty()) {
-            return ip;
-        }
-        String[] octets = ip.split("\\.");
-        StringBuilder normalizedIP = new StringBuilder();
-        for (String octet : octets) {
-            normalizedIP.append(Integer.parseInt(octet)).append(".");
-        }
-        return normalizedIP.substring(0, normalizedIP.length() - 1); // удаление последней точки
+    // Поиск domain по диапазону IP [from, to] включительно
+    public static PairPage findByIPRange(ChannelSftp channelSftp, String from, String to, int offset, int limit)
+            throws SftpException {
+        return getIndex(channelSftp).getRangeIndex().findRange(from, to, offset, limit);
+    }
+
+    // Поиск domain по подсети в нотации CIDR, например 10.20.0.0/16
+    public static PairPage findByCidr(ChannelSftp channelSftp, String cidr, int offset, int limit)
+            throws SftpException {
+        return getIndex(channelSftp).getRangeIndex().findCidr(cidr, offset, limit);
+    }
+
+    // Получение domain по IP
+    public static String getDomainByIP(ChannelSftp channelSftp, String ip) throws SftpException{
+        PairLookup lookup = getLookup(channelSftp);
+        long start = System.nanoTime();
+        String domain = lookup.getDomain(ip); // поиск по нормализованному IP
+        metrics.record(SftpMetrics.Phase.LOOKUP, start);
+        return domain != null ? domain : "IP не найден!";
     }
 
     // Добавление новой domain-IP пары
@@ -205,61 +736,474 @@ public class SFTPClient {
             return;
         }
 
-        List<Map<String,String>> pairs = getDomainIPPairs(channelSftp);
+        modify(channelSftp, (cache, index) -> {
+            // проверка на дубликаты (domain без учета регистра, IP после нормализации)
+            if (index.indexOfDomain(domain) >= 0 || index.getDomain(ip) != null) {
+                System.out.println("Domain или IP уже существует");
+                return true;
+            }
 
-        // проверка на дубликаты
-        if (pairs.stream()
-                .anyMatch(pair -> domain.equals(pair.get("domain")) || ip.equals(pair.get("ip")))){
-            System.out.println("Domain или IP уже существует");
-            return;
-        }
+            DomainIPIndex.Builder pairs = index.toBuilder();
+            pairs.add(domain, ip);
+            DomainIPIndex updated = pairs.build();
+            if (cache.getShards() != null) {
+                return saveShards(channelSftp, cache, index, updated, false);
+            }
 
-        Map<String,String> newPair = new HashMap<>();
-        newPair.put("domain", domain);
-        newPair.put("ip", ip);
-        pairs.add(newPair);
-        savePairs(channelSftp,pairs);
+            FileLayout layout = cache.getLayout();
+            if (layout == null || !layout.canAppend()) {
+                return savePairs(channelSftp, cache, updated);
+            }
+            return appendRecords(channelSftp, cache, updated, AddressesJsonWriter.record(domain, IPv4.normalize(ip)));
+        });
     }
 
     // Удаление domain-IP пары
     public static void deletePair(ChannelSftp channelSftp, String data) throws SftpException {
-        List<Map<String,String>> pairs = getDomainIPPairs(channelSftp);
-        pairs.removeIf(pair -> data.equals(pair.get("domain")) || data.equals(pair.get("ip")));
-        savePairs(channelSftp, pairs);
+        modify(channelSftp, (cache, index) -> {
+            long ip = IPv4.parse(data);
+            DomainIPIndex.Builder pairs = new DomainIPIndex.Builder(index.size());
+            pairs.addForeign(index);
+            boolean removed = false;
+            for (int i = 0; i < index.size(); i++) {
+                boolean matches = index.domainAt(i).equalsIgnoreCase(data) || (ip != IPv4.INVALID && index.ipAt(i) == (int) ip);
+                if (matches) {
+                    removed = true;
+                } else {
+                    pairs.add(index.domainAt(i), index.ipAt(i));
+                }
+            }
+            if (!removed) {
+                return true;
+            }
+            DomainIPIndex updated = pairs.build();
+            if (cache.getShards() != null) {
+                return saveShards(channelSftp, cache, index, updated, false);
+            }
+
+            // удаление — всегда полная перезапись через временный файл: после удаленной записи сдвигается
+            // весь остаток файла, и изменение на месте при обрыве связи оставило бы файл испорченным
+            return savePairs(channelSftp, cache, updated);
+        });
     }
 
-    // Проверка валидности IPv4
-    public static boolean isValidIP(String ip){
-        return ip.matches("^(25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)\\." +
-                "(25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)\\." +
-                "(25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)\\." +
-                "(25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)$");
+    // Пакетное применение изменений: одно чтение, проверка по индексу и одна запись файла
+    public static List<BatchResult> applyBatch(ChannelSftp channelSftp, List<PairChange> changes) throws SftpException {
+        List<BatchResult> results = new ArrayList<>();
+        modify(channelSftp, (cache, index) -> {
+            // при повторе после конфликта изменения проверяются заново по свежему индексу
+            PairBatch batch = new PairBatch(index);
+            for (PairChange change : changes) {
+                batch.apply(change);
+            }
+            results.clear();
+            results.addAll(batch.getResults());
+            if (!batch.hasChanges()) {
+                return true;
+            }
+            DomainIPIndex updated = batch.build();
+            if (cache.getShards() != null) {
+                return saveShards(channelSftp, cache, index, updated, false);
+            }
+
+            FileLayout layout = cache.getLayout();
+            if (!batch.isAppendOnly() || layout == null || !layout.canAppend()) {
+                return savePairs(channelSftp, cache, updated);
+            }
+            // только добавления — все записи дописываются одной записью перед ']'
+            List<PairChange> added = batch.getAdded();
+            byte[][] records = new byte[added.size()][];
+            for (int i = 0; i < records.length; i++) {
+                records[i] = AddressesJsonWriter.record(added.get(i).getDomain(), added.get(i).getIp());
+            }
+            return appendRecords(channelSftp, cache, updated, records);
+        });
+        return results;
+    }
+
+    // Полная перезапись файла в формате клиента (например, после ручной правки)
+    public static void compact(ChannelSftp channelSftp) throws SftpException {
+        modify(channelSftp, (cache, index) -> cache.getShards() != null
+                ? saveShards(channelSftp, cache, index, index, true)
+                : savePairs(channelSftp, cache, index));
     }
 
-    // Сохранение пар
-    private static void savePairs(ChannelSftp channelSftp, List<Map<String, String>> pairs) throws SftpException {
-        StringBuilder jsonBuilder = new StringBuilder();
-        jsonBuilder.append("{\"addresses\":[");
+    // Изменение индекса и файла; false — файл на сервере изменил другой клиент, изменение нужно повторить
+    private interface Update {
+        boolean apply(PairCache cache, DomainIPIndex index) throws SftpException;
+    }
 
-        for (int i = 0; i < pairs.size(); i++) {
-            Map<String, String> pair = pairs.get(i);
-            jsonBuilder.append("{\"domain\":\"").append(pair.get("domain")).append("\",")
-                    .append("\"ip\":\"").append(pair.get("ip")).append("\"}");
-            if (i < pairs.size() - 1) {
-                jsonBuilder.append(",");
+    // Цикл чтение-проверка-запись с повтором при конфликте с другими клиентами.
+    // Блокировка кэша упорядочивает потоки этого процесса, блокировка записи на сервере — клиентов;
+    // изменения в обход блокировки (например, ручная правка) обнаруживаются по mtime/size файла
+    private static void modify(ChannelSftp channelSftp, Update update) throws SftpException {
+        PairCache cache = cacheFor(channelSftp);
+        synchronized (cache.loadLock()) {
+            for (int attempt = 1; ; attempt++) {
+                WriteLock lock = WriteLock.acquire(channelSftp, writeLockName(), LOCK_STALE_MILLIS);
+                try {
+                    if (update.apply(cache, getIndex(channelSftp, true))) {
+                        return;
+                    }
+                } catch (SftpException e) {
+                    if (e.id != ChannelSftp.SSH_FX_NO_SUCH_FILE || jsonFilePath != null || attempt == MAX_SAVE_ATTEMPTS) {
+                        throw e;
+                    }
+                    // файл переименован во время изменения — путь будет найден заново
+                    cache.forgetFile();
+                    continue;
+                } finally {
+                    lock.release(channelSftp);
+                }
+                if (attempt == MAX_SAVE_ATTEMPTS) {
+                    throw new SftpException(ChannelSftp.SSH_FX_FAILURE,
+                            "Файл изменен другим клиентом, изменения не сохранены после " + attempt + " попыток");
+                }
+                System.out.println("Файл изменен другим клиентом, повтор изменения");
+                try {
+                    // случайная пауза, чтобы конкурирующие клиенты не повторяли запись одновременно
+                    Thread.sleep(ThreadLocalRandom.current().nextLong(10, 50L * attempt));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SftpException(ChannelSftp.SSH_FX_FAILURE, "Повтор изменения прерван", e);
+                }
             }
         }
+    }
 
-        jsonBuilder.append("]}");
+    // Имя каталога-блокировки записи: рядом с заданным json-файлом или в текущем каталоге
+    private static String writeLockName() {
+        String path = jsonFilePath;
+        if (path == null) {
+            return WRITE_LOCK;
+        }
+        int slash = path.lastIndexOf('/');
+        return path.substring(0, slash + 1) + "." + path.substring(slash + 1) + ".lock";
+    }
+
+    // Дописывание записей перед закрывающей ']' без перезаписи остального файла.
+    // Записи и хвост файла уходят одним запросом записи не больше MAX_APPEND_BYTES: сервер применяет его
+    // целиком, и обрыв связи не оставляет файл обрезанным. Больший пакет записывается через временный файл.
+    // Выполняется под блокировкой записи; непосредственно перед записью файл все равно проверяется заново
+    // (его могли изменить вручную или клиент без блокировки): байты от ']' до конца должны совпадать с хвостом
+    // из кэша, а размер и mtime — с загруженной версией. Иначе смещение неверно: false, изменение
+    // повторяется по свежему индексу
+    private static boolean appendRecords(ChannelSftp channelSftp, PairCache cache, DomainIPIndex updated,
+                                         byte[]... records) throws SftpException {
+        FileLayout layout = cache.getLayout();
+        String jsonFileName = cache.getFileName();
+        byte[] data = layout.appendBytes(records);
+        if (data.length > MAX_APPEND_BYTES) {
+            return savePairs(channelSftp, cache, updated);
+        }
+        if (!layout.tailMatches(readFrom(channelSftp, jsonFileName, layout.arrayEnd(), layout.tailLength() + 1))) {
+            cache.invalidate();
+            return false;
+        }
+        SftpATTRS attrs = statOrNull(channelSftp, jsonFileName);
+        if (!cache.matches(attrs) || attrs.getSize() != layout.getFileSize()) {
+            cache.invalidate();
+            return false;
+        }
+        int[] lengths = new int[records.length];
+        for (int i = 0; i < records.length; i++) {
+            lengths[i] = records[i].length;
+        }
+        writeAt(channelSftp, jsonFileName, attrs.getSize(), layout.arrayEnd(), data);
+        updateCache(channelSftp, cache, jsonFileName, updated, layout.withAppended(lengths));
+        System.out.println("Файл обновлен!");
+        return true;
+    }
 
-        String jsonFileName = findJsonFile(channelSftp);
-        ByteArrayInputStream inputStream = new ByteArrayInputStream(jsonBuilder.toString().getBytes());
+    // Чтение не более limit байтов файла начиная с offset
+    private static byte[] readFrom(ChannelSftp channelSftp, String fileName, long offset, int limit)
+            throws SftpException {
+        long start = System.nanoTime();
+        ByteArrayOutputStream result = new ByteArrayOutputStream(limit);
+        try (InputStream inputStream = channelSftp.get(fileName, null, offset)) {
+            byte[] buffer = new byte[limit];
+            int read;
+            while (result.size() < limit && (read = inputStream.read(buffer, 0, limit - result.size())) > 0) {
+                result.write(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            throw new SftpException(ChannelSftp.SSH_FX_FAILURE, e.getMessage(), e);
+        }
+        metrics.record(SftpMetrics.Phase.FETCH, start);
+        metrics.addBytesIn(result.size());
+        return result.toByteArray();
+    }
+
+    // Запись данных с заданного смещения без усечения файла
+    private static void writeAt(ChannelSftp channelSftp, String jsonFileName, long fileSize, long offset,
+                                byte[] data) throws SftpException {
+        // в режиме RESUME JSch отсчитывает смещение от текущего конца файла
+        long start = System.nanoTime();
+        try (OutputStream outputStream = channelSftp.put(jsonFileName, null, ChannelSftp.RESUME, offset - fileSize)) {
+            outputStream.write(data);
+        } catch (IOException e) {
+            throw new SftpException(ChannelSftp.SSH_FX_FAILURE, e.getMessage(), e);
+        }
+        metrics.record(SftpMetrics.Phase.WRITE, start);
+        metrics.addBytesOut(data.length);
+    }
+
+    // Проверка валидности IPv4
+    public static boolean isValidIP(String ip){
+        return IPv4.isValid(ip);
+    }
+
+    // Сохранение пар: запись во временный файл и переименование поверх json-файла,
+    // чтобы читатели видели либо старую, либо новую версию целиком.
+    // Возвращает false, если файл изменился с момента чтения — временный файл удаляется, кэш сбрасывается
+    private static boolean savePairs(ChannelSftp channelSftp, PairCache cache, DomainIPIndex pairs) throws SftpException {
+        String jsonFileName = cache.getFileName();
+        String tempFileName = tempFileName(jsonFileName);
         try {
-            channelSftp.put(inputStream, jsonFileName, ChannelSftp.OVERWRITE);
+            boolean compressed = isCompressed(jsonFileName);
+            FileLayout layout = upload(channelSftp, tempFileName, pairs, compressed);
+            // проверка версии непосредственно перед заменой файла
+            if (!cache.matches(statOrNull(channelSftp, jsonFileName))) {
+                removeQuietly(channelSftp, tempFileName);
+                cache.invalidate();
+                return false;
+            }
+            long start = System.nanoTime();
+            replace(channelSftp, tempFileName, jsonFileName);
+            metrics.record(SftpMetrics.Phase.RENAME, start);
+            updateCache(channelSftp, cache, jsonFileName, pairs, compressed ? null : layout);
             System.out.println("Файл обновлен!");
+            return true;
+        } catch (SftpException e) {
+            removeQuietly(channelSftp, tempFileName);
+            System.err.println("Ошибка при записи файла на сервер: " + e.getMessage());
+            throw e;
+        }
+    }
+
+    // Запись документа в файл на сервере; документ пишется по мере сериализации прямо в поток загрузки,
+    // без полной копии в памяти. Возвращает расположение конца массива в несжатом документе
+    private static FileLayout upload(ChannelSftp channelSftp, String fileName, DomainIPIndex pairs, boolean compressed)
+            throws SftpException {
+        FileLayout layout;
+        long start = System.nanoTime();
+        SftpMetrics.CountingOutputStream upload =
+                new SftpMetrics.CountingOutputStream(channelSftp.put(fileName, ChannelSftp.OVERWRITE));
+        try (OutputStream outputStream = compressed
+                ? new BufferedOutputStream(new GZIPOutputStream(upload, GZIP_BUFFER_SIZE), UPLOAD_BUFFER_SIZE)
+                : new BufferedOutputStream(upload, UPLOAD_BUFFER_SIZE)) {
+            layout = AddressesJsonWriter.write(pairs, outputStream);
+        } catch (IOException e) {
+            throw new SftpException(ChannelSftp.SSH_FX_FAILURE, e.getMessage(), e);
+        }
+        metrics.record(SftpMetrics.Phase.WRITE, start);
+        metrics.addBytesOut(upload.getBytes());
+        return layout;
+    }
+
+    // Сохранение изменений набора шардов: перезаписываются только шарды, записи которых изменились
+    // (all — перезаписать все шарды, например для сжатия). Все шарды сначала записываются во временные файлы
+    // и проверяются; переименование начинается, только если ни один шард не изменил другой клиент.
+    // false — шард изменил другой клиент, ни один файл не заменен
+    private static boolean saveShards(ChannelSftp channelSftp, PairCache cache, DomainIPIndex merged,
+                                      DomainIPIndex updated, boolean all) throws SftpException {
+        ShardSet shards = cache.getShards();
+        DomainIPIndex[] parts = shards.split(merged, updated);
+        List<Integer> changed = new ArrayList<>();
+        String[] tempFileNames = new String[parts.length];
+        FileLayout[] layouts = new FileLayout[parts.length];
+        try {
+            for (int i = 0; i < parts.length; i++) {
+                if (parts[i] == null && all) {
+                    parts[i] = shards.cache(i).getIndex();
+                }
+                if (parts[i] != null) {
+                    changed.add(i);
+                    tempFileNames[i] = tempFileName(shards.fileName(i));
+                    layouts[i] = upload(channelSftp, tempFileNames[i], parts[i], isCompressed(shards.fileName(i)));
+                }
+            }
+            // проверка версий всех шардов непосредственно перед заменой первого файла
+            for (int i : changed) {
+                if (!shards.cache(i).matches(statOrNull(channelSftp, shards.fileName(i)))) {
+                    removeQuietly(channelSftp, tempFileNames);
+                    shards.cache(i).invalidate();
+                    cache.invalidate();
+                    return false;
+                }
+            }
+            long start = System.nanoTime();
+            for (int i : changed) {
+                replace(channelSftp, tempFileNames[i], shards.fileName(i));
+                tempFileNames[i] = null;
+            }
+            metrics.record(SftpMetrics.Phase.RENAME, start);
         } catch (SftpException e) {
+            removeQuietly(channelSftp, tempFileNames);
+            cache.invalidate();
             System.err.println("Ошибка при записи файла на сервер: " + e.getMessage());
             throw e;
         }
+        for (int i : changed) {
+            String fileName = shards.fileName(i);
+            updateCache(channelSftp, shards.cache(i), fileName, parts[i], isCompressed(fileName) ? null : layouts[i]);
+        }
+        System.out.println("Файл обновлен!");
+        for (int i = 0; i < shards.size(); i++) {
+            if (shards.cache(i).getIndex() == null) {
+                // шард после записи изменен кем-то еще — он будет загружен заново
+                cache.invalidate();
+                return true;
+            }
+        }
+        cache.updateMerged(shards.merge());
+        return true;
+    }
+
+    // Разделение данных каталога на count файлов-шардов (1 — объединение в один файл).
+    // Новые файлы записываются полностью до удаления старых, поэтому читатели видят либо старый,
+    // либо новый полный набор
+    public static void reshard(ChannelSftp channelSftp, int count) throws SftpException {
+        if (count < 1) {
+            throw new IllegalArgumentException("Число шардов должно быть положительным: " + count);
+        }
+        if (jsonFilePath != null) {
+            throw new SftpException(ChannelSftp.SSH_FX_OP_UNSUPPORTED, "Шарды не используются при заданном пути к json-файлу");
+        }
+        PairCache cache = cacheFor(channelSftp);
+        synchronized (cache.loadLock()) {
+            WriteLock lock = WriteLock.acquire(channelSftp, writeLockName(), LOCK_STALE_MILLIS);
+            try {
+                reshard(channelSftp, cache, count);
+            } finally {
+                lock.release(channelSftp);
+            }
+        }
+    }
+
+    private static void reshard(ChannelSftp channelSftp, PairCache cache, int count) throws SftpException {
+        DomainIPIndex index = getIndex(channelSftp, true);
+        ShardSet old = cache.getShards();
+        List<String> oldFiles = new ArrayList<>();
+        if (old != null) {
+            for (int i = 0; i < old.size(); i++) {
+                oldFiles.add(old.fileName(i));
+            }
+        } else {
+            oldFiles.add(cache.getFileName());
+        }
+        String first = oldFiles.get(0);
+        boolean compressed = isCompressed(first);
+        String base = old != null ? ShardSet.baseName(first)
+                : first.substring(0, first.toLowerCase(Locale.ROOT).lastIndexOf(".json"));
+
+        DomainIPIndex.Builder[] parts = new DomainIPIndex.Builder[count];
+        for (int s = 0; s < count; s++) {
+            parts[s] = new DomainIPIndex.Builder();
+        }
+        for (int i = 0; i < index.size(); i++) {
+            parts[ShardSet.shardOf(index.domainAt(i), count)].add(index.domainAt(i), index.ipAt(i));
+        }
+        // записи без разбора переносятся в первый файл (в объединенном индексе шардов их нет)
+        if (old != null) {
+            for (int i = 0; i < old.size(); i++) {
+                parts[0].addForeign(old.cache(i).getIndex());
+            }
+        } else {
+            parts[0].addForeign(index);
+        }
+        List<String> written = new ArrayList<>();
+        for (int s = 0; s < count; s++) {
+            String fileName = count == 1 ? base + (compressed ? ".json.gz" : ".json")
+                    : ShardSet.fileName(base, s, count, compressed);
+            String tempFileName = tempFileName(fileName);
+            try {
+                upload(channelSftp, tempFileName, parts[s].build(), compressed);
+                replace(channelSftp, tempFileName, fileName);
+            } catch (SftpException e) {
+                removeQuietly(channelSftp, tempFileName);
+                throw e;
+            }
+            written.add(fileName);
+        }
+        for (String fileName : oldFiles) {
+            if (!written.contains(fileName)) {
+                removeQuietly(channelSftp, fileName);
+            }
+        }
+        cache.forgetFile();
+        System.out.println("Данные записаны в файлов: " + count);
+    }
+
+    // Скрытое имя в том же каталоге; расширение .tmp не дает принять файл за json-файл с данными
+    private static String tempFileName(String jsonFileName) {
+        return hiddenFileName(jsonFileName, ".tmp");
+    }
+
+    private static String hiddenFileName(String fileName, String extension) {
+        int slash = fileName.lastIndexOf('/');
+        return fileName.substring(0, slash + 1) + "." + fileName.substring(slash + 1)
+                + "." + UUID.randomUUID() + extension;
+    }
+
+    // Переименование с заменой существующего файла.
+    // JSch использует posix-rename@openssh.com, если сервер его поддерживает (атомарная замена);
+    // иначе сервер отказывает при существующем файле. Тогда прежний файл сначала переименовывается
+    // в резервную копию и возвращается на место, если новый переименовать не удалось: прежняя версия
+    // все время хранится на сервере, и удаление временного файла при ошибке не теряет данные
+    private static void replace(ChannelSftp channelSftp, String from, String to) throws SftpException {
+        try {
+            channelSftp.rename(from, to);
+            return;
+        } catch (SftpException e) {
+            if (e.id != ChannelSftp.SSH_FX_FAILURE && e.id != ChannelSftp.SSH_FX_PERMISSION_DENIED) {
+                throw e;
+            }
+        }
+        String backupFileName = hiddenFileName(to, ".bak");
+        channelSftp.rename(to, backupFileName);
+        try {
+            channelSftp.rename(from, to);
+        } catch (SftpException e) {
+            try {
+                channelSftp.rename(backupFileName, to);
+            } catch (SftpException restore) {
+                e.addSuppressed(restore);
+                throw new SftpException(e.id, "Файл " + to + " не заменен, прежняя версия сохранена в "
+                        + backupFileName, e);
+            }
+            throw e;
+        }
+        removeQuietly(channelSftp, backupFileName);
+    }
+
+    private static SftpATTRS statOrNull(ChannelSftp channelSftp, String fileName) throws SftpException {
+        long start = System.nanoTime();
+        try {
+            return channelSftp.stat(fileName);
+        } catch (SftpException e) {
+            if (e.id == ChannelSftp.SSH_FX_NO_SUCH_FILE) {
+                return null;
+            }
+            throw e;
+        } finally {
+            metrics.record(SftpMetrics.Phase.STAT, start);
+        }
+    }
+
+    private static void removeQuietly(ChannelSftp channelSftp, String fileName) {
+        try {
+            channelSftp.rm(fileName);
+        } catch (SftpException ignored) {
+            // временный файл мог быть не создан или уже переименован
+        }
+    }
+
+    private static void removeQuietly(ChannelSftp channelSftp, String[] fileNames) {
+        for (String fileName : fileNames) {
+            if (fileName != null) {
+                removeQuietly(channelSftp, fileName);
+            }
+        }
     }
-}
\ No newline at end of file
+}
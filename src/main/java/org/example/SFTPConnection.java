@@ -2,28 +2,237 @@ package org.example;
 
 import com.jcraft.jsch.*;
 
+import java.util.concurrent.ThreadLocalRandom;
+
 public class SFTPConnection {
-    private Session session;
-    private ChannelSftp channelSftp;
+    // ключи загружаются в JSch один раз и переиспользуются при повторных подключениях
+    private final JSch jsch = new JSch();
+    private volatile Session session;
+    private volatile ChannelSftp channelSftp;
+    private String host;
+    private int port;
+    private String username;
+    private String password;
+    // сжатие трафика сессии zlib (-Dsftp.compression=true); уровень 1-9
+    private boolean compression = Boolean.getBoolean("sftp.compression");
+    private int compressionLevel = Integer.getInteger("sftp.compression.level", 6);
+    // аутентификация по ключу (-Dsftp.identity=<файл ключа>) или через агент (setIdentityRepository)
+    private String identityFile = System.getProperty("sftp.identity");
+    private String identityPassphrase;
+    private boolean identityLoaded;
+    private boolean identityRepository;
+    // алгоритмы через запятую в порядке предпочтения; null — список JSch по умолчанию
+    private String ciphers = System.getProperty("sftp.ciphers");
+    private String kex = System.getProperty("sftp.kex");
+    private String macs = System.getProperty("sftp.macs");
+    // интервал keepalive-запросов (мс), 0 — отключены; после 3 запросов без ответа сессия считается разорванной
+    private int serverAliveInterval = Integer.getInteger("sftp.keepalive", 30_000);
+    private int connectTimeout = Integer.getInteger("sftp.connect.timeout", 15_000);
+    // повторные подключения при обрыве: число попыток и начальная пауза (мс), пауза удваивается
+    private int reconnectAttempts = Integer.getInteger("sftp.reconnect.attempts", 5);
+    private long reconnectDelayMillis = Long.getLong("sftp.reconnect.delay", 500L);
+    private static final long MAX_RECONNECT_DELAY = 30_000;
+
+    // Настройка сжатия применяется при следующем подключении
+    public void setCompression(boolean compression) {
+        this.compression = compression;
+    }
+
+    public void setCompressionLevel(int compressionLevel) {
+        if (compressionLevel < 1 || compressionLevel > 9) {
+            throw new IllegalArgumentException("Уровень сжатия должен быть от 1 до 9: " + compressionLevel);
+        }
+        this.compressionLevel = compressionLevel;
+    }
+
+    // Закрытый ключ для аутентификации; passphrase может быть null для ключа без пароля
+    public synchronized void setIdentity(String privateKeyFile, String passphrase) {
+        this.identityFile = privateKeyFile;
+        this.identityPassphrase = passphrase;
+        this.identityLoaded = false;
+    }
+
+    // Источник ключей, например ssh-agent (RemoteIdentityRepository из jsch.agentproxy)
+    public synchronized void setIdentityRepository(IdentityRepository repository) {
+        jsch.setIdentityRepository(repository);
+        identityRepository = repository != null;
+    }
+
+    public void setCiphers(String ciphers) {
+        this.ciphers = ciphers;
+    }
+
+    public void setKex(String kex) {
+        this.kex = kex;
+    }
 
-    // Установка соединения с sftp-сервером
-    public void connect(String host, int port, String username, String password) throws JSchException {
-        JSch jsch = new JSch();
+    public void setMacs(String macs) {
+        this.macs = macs;
+    }
+
+    public void setServerAliveInterval(int millis) {
+        this.serverAliveInterval = millis;
+    }
+
+    public void setConnectTimeout(int millis) {
+        this.connectTimeout = millis;
+    }
+
+    public void setReconnect(int attempts, long initialDelayMillis) {
+        if (attempts < 1 || initialDelayMillis < 0) {
+            throw new IllegalArgumentException("Неверные параметры переподключения: attempts=" + attempts
+                    + ", delay=" + initialDelayMillis);
+        }
+        this.reconnectAttempts = attempts;
+        this.reconnectDelayMillis = initialDelayMillis;
+    }
+
+    // Установка соединения с sftp-сервером; password может быть null при аутентификации по ключу
+    public synchronized void connect(String host, int port, String username, String password) throws JSchException {
+        this.host = host;
+        this.port = port;
+        this.username = username;
+        this.password = password;
+
+        if (identityFile != null && !identityLoaded) {
+            jsch.addIdentity(identityFile, identityPassphrase);
+            identityLoaded = true;
+        }
         session = jsch.getSession(username, host, port);
-        session.setPassword(password);
+        if (password != null) {
+            session.setPassword(password);
+        }
         session.setConfig("StrictHostKeyChecking", "no");
-        session.connect();
+        // только доступные способы аутентификации, без лишних попыток gssapi
+        session.setConfig("PreferredAuthentications", preferredAuthentications(password));
+        if (compression) {
+            // zlib@openssh.com включается после аутентификации; если сервер не поддерживает сжатие, используется none
+            session.setConfig("compression.s2c", "zlib@openssh.com,zlib,none");
+            session.setConfig("compression.c2s", "zlib@openssh.com,zlib,none");
+            session.setConfig("compression_level", String.valueOf(compressionLevel));
+        }
+        if (ciphers != null) {
+            session.setConfig("cipher.s2c", ciphers);
+            session.setConfig("cipher.c2s", ciphers);
+        }
+        if (kex != null) {
+            session.setConfig("kex", kex);
+        }
+        if (macs != null) {
+            session.setConfig("mac.s2c", macs);
+            session.setConfig("mac.c2s", macs);
+        }
+        if (serverAliveInterval > 0) {
+            session.setServerAliveInterval(serverAliveInterval);
+            session.setServerAliveCountMax(3);
+        }
+        long start = System.nanoTime();
+        session.connect(connectTimeout);
+
+        channelSftp = openChannel();
+        SftpMetrics.get().record(SftpMetrics.Phase.CONNECT, start);
+    }
+
+    // Пароль передается и через keyboard-interactive: многие серверы (например, с PAM) принимают пароль
+    // только так, а JSch отвечает паролем сессии на единственный запрос пароля
+    private String preferredAuthentications(String password) throws JSchException {
+        boolean keys = identityFile != null || identityRepository || !jsch.getIdentityNames().isEmpty();
+        if (keys) {
+            return password != null ? "publickey,password,keyboard-interactive" : "publickey";
+        }
+        return "password,keyboard-interactive";
+    }
 
-        channelSftp = (ChannelSftp) session.openChannel("sftp");
-        channelSftp.connect();
+    // Повторное подключение с прежними параметрами
+    public synchronized void reconnect() throws JSchException {
+        if (host == null) {
+            throw new JSchException("Соединение еще не устанавливалось");
+        }
+        disconnect();
+        connect(host, port, username, password);
+    }
+
+    // Рабочий канал: при обрыве канала открывается новый в той же сессии, при обрыве сессии
+    // выполняется переподключение с экспоненциальной паузой. Рабочий каталог канала сохраняется
+    public synchronized ChannelSftp ensureConnected() throws JSchException {
+        if (isConnected() && channelSftp != null && channelSftp.isConnected()) {
+            return channelSftp;
+        }
+        String directory = currentDirectory();
+        if (isConnected()) {
+            channelSftp = openChannel();
+        } else {
+            reconnectWithBackoff();
+        }
+        if (directory != null) {
+            try {
+                channelSftp.cd(directory);
+            } catch (SftpException e) {
+                throw new JSchException("Не удалось вернуться в каталог " + directory + ": " + e.getMessage(), e);
+            }
+        }
+        return channelSftp;
+    }
+
+    private void reconnectWithBackoff() throws JSchException {
+        long delay = reconnectDelayMillis;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                reconnect();
+                if (attempt > 1) {
+                    System.out.println("Соединение восстановлено с попытки " + attempt);
+                }
+                return;
+            } catch (JSchException e) {
+                if (attempt >= reconnectAttempts) {
+                    throw e;
+                }
+                System.err.println("Ошибка подключения (попытка " + attempt + "): " + e.getMessage());
+            }
+            try {
+                // случайная добавка, чтобы несколько клиентов не переподключались одновременно
+                Thread.sleep(delay + ThreadLocalRandom.current().nextLong(delay / 2 + 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new JSchException("Переподключение прервано", e);
+            }
+            delay = Math.min(delay * 2, MAX_RECONNECT_DELAY);
+        }
+    }
+
+    // Каталог канала запоминается на стороне клиента и доступен после обрыва
+    private String currentDirectory() {
+        if (channelSftp == null) {
+            return null;
+        }
+        try {
+            return channelSftp.pwd();
+        } catch (SftpException e) {
+            return null;
+        }
+    }
+
+    // Открытие дополнительного sftp-канала в рамках текущей сессии
+    public ChannelSftp openChannel() throws JSchException {
+        Session current = session;
+        if (current == null || !current.isConnected()) {
+            throw new JSchException("Сессия не подключена");
+        }
+        ChannelSftp channel = (ChannelSftp) current.openChannel("sftp");
+        channel.connect();
+        return channel;
     }
 
     public ChannelSftp getChannelSftp() {
         return channelSftp;
     }
 
+    public boolean isConnected() {
+        return session != null && session.isConnected();
+    }
+
     // Разрыв соединения с sftp-сервером
-    public void disconnect() {
+    public synchronized void disconnect() {
         if (channelSftp != null && channelSftp.isConnected()) {
             channelSftp.disconnect();
         }
@@ -31,4 +240,4 @@ public class SFTPConnection {
             session.disconnect();
         }
     }
-}
\ No newline at end of file
+}
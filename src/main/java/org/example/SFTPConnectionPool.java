@@ -0,0 +1,399 @@
+package org.example;
+
+import com.jcraft.jsch.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+// Пул sftp-каналов для одновременной работы из нескольких потоков.
+// Каждый канал в один момент времени выдается только одному потоку (ChannelSftp не потокобезопасен),
+// сессии открываются по мере необходимости и переиспользуют рукопожатие SSH для нескольких каналов.
+public class SFTPConnectionPool implements AutoCloseable {
+
+    // Создание нового подключенного соединения
+    public interface ConnectionFactory {
+        SFTPConnection create() throws JSchException;
+    }
+
+    // Действие над каналом, выданным пулом
+    public interface SftpCallback<T> {
+        T doInSftp(ChannelSftp channelSftp) throws SftpException;
+    }
+
+    private static class SessionSlot {
+        final SFTPConnection connection;
+        int openChannels;
+
+        SessionSlot(SFTPConnection connection) {
+            this.connection = connection;
+        }
+    }
+
+    private static class PooledChannel {
+        final SessionSlot slot;
+        final ChannelSftp channel;
+        long lastUsed = System.currentTimeMillis();
+
+        PooledChannel(SessionSlot slot, ChannelSftp channel) {
+            this.slot = slot;
+            this.channel = channel;
+        }
+    }
+
+    private final ConnectionFactory factory;
+    private final int minSessions;
+    private final int maxSessions;
+    private final int channelsPerSession;
+    private final long idleTimeoutMillis;
+    private final long borrowTimeoutMillis;
+    // каналы, простаивающие дольше этого времени, проверяются запросом к серверу перед выдачей
+    private volatile long validationIntervalMillis = 30_000;
+
+    private final Semaphore permits;
+    private final List<SessionSlot> sessions = new ArrayList<>();
+    private final Deque<PooledChannel> idle = new ArrayDeque<>();
+    private final Map<ChannelSftp, PooledChannel> borrowed = new IdentityHashMap<>();
+    private final ScheduledExecutorService evictor;
+    private int pendingSessions;
+    private boolean closed;
+
+    public SFTPConnectionPool(String host, int port, String username, String password) throws JSchException {
+        this(() -> {
+            SFTPConnection connection = new SFTPConnection();
+            connection.connect(host, port, username, password);
+            return connection;
+        }, 1, 4, 4, 60_000, 30_000);
+    }
+
+    public SFTPConnectionPool(ConnectionFactory factory, int minSessions, int maxSessions, int channelsPerSession,
+                              long idleTimeoutMillis, long borrowTimeoutMillis) throws JSchException {
+        if (minSessions < 0 || maxSessions < 1 || minSessions > maxSessions || channelsPerSession < 1) {
+            throw new IllegalArgumentException("Неверные параметры пула: min=" + minSessions
+                    + ", max=" + maxSessions + ", channels=" + channelsPerSession);
+        }
+        this.factory = factory;
+        this.minSessions = minSessions;
+        this.maxSessions = maxSessions;
+        this.channelsPerSession = channelsPerSession;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.permits = new Semaphore(maxSessions * channelsPerSession, true);
+
+        for (int i = 0; i < minSessions; i++) {
+            SessionSlot slot = new SessionSlot(factory.create());
+            slot.openChannels = 1;
+            sessions.add(slot);
+            idle.addLast(new PooledChannel(slot, slot.connection.getChannelSftp()));
+        }
+
+        evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "sftp-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(idleTimeoutMillis / 2, 1000);
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    public void setValidationInterval(long millis) {
+        validationIntervalMillis = millis;
+    }
+
+    // Получение канала из пула; канал нужно вернуть через release или invalidate
+    public ChannelSftp borrow() throws JSchException {
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new JSchException("Нет свободных каналов в пуле за " + borrowTimeoutMillis + " мс");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JSchException("Ожидание канала прервано", e);
+        }
+        try {
+            return acquireChannel();
+        } catch (JSchException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private ChannelSftp acquireChannel() throws JSchException {
+        while (true) {
+            PooledChannel pooled;
+            SessionSlot slot = null;
+            synchronized (this) {
+                if (closed) {
+                    throw new JSchException("Пул закрыт");
+                }
+                pooled = idle.pollFirst();
+                if (pooled == null) {
+                    slot = findSlotWithCapacity();
+                    if (slot != null) {
+                        slot.openChannels++; // резерв места под новый канал
+                    } else if (sessions.size() + pendingSessions < maxSessions) {
+                        pendingSessions++;
+                    } else {
+                        // место освободится, когда другой поток откроет сессию или закроет канал
+                        waitForCapacity();
+                        continue;
+                    }
+                }
+            }
+
+            if (pooled != null) {
+                if (isValid(pooled)) {
+                    synchronized (this) {
+                        borrowed.put(pooled.channel, pooled);
+                    }
+                    return pooled.channel;
+                }
+                destroy(pooled);
+                continue;
+            }
+
+            if (slot == null) {
+                return openSession();
+            }
+            try {
+                ChannelSftp channel = slot.connection.openChannel();
+                synchronized (this) {
+                    borrowed.put(channel, new PooledChannel(slot, channel));
+                }
+                return channel;
+            } catch (JSchException e) {
+                synchronized (this) {
+                    slot.openChannels--;
+                    notifyAll();
+                }
+                if (slot.connection.isConnected()) {
+                    throw e;
+                }
+                // сессия разорвана — удаляем ее и повторяем с новой
+                removeSession(slot);
+            }
+        }
+    }
+
+    // Открытие новой сессии; ее основной канал сразу выдается вызывающему
+    private ChannelSftp openSession() throws JSchException {
+        SFTPConnection connection;
+        try {
+            connection = factory.create();
+        } catch (JSchException | RuntimeException e) {
+            synchronized (this) {
+                pendingSessions--;
+                notifyAll();
+            }
+            throw e;
+        }
+        SessionSlot slot = new SessionSlot(connection);
+        slot.openChannels = 1;
+        ChannelSftp channel = connection.getChannelSftp();
+        synchronized (this) {
+            pendingSessions--;
+            if (closed) {
+                connection.disconnect();
+                throw new JSchException("Пул закрыт");
+            }
+            sessions.add(slot);
+            borrowed.put(channel, new PooledChannel(slot, channel));
+            notifyAll();
+        }
+        return channel;
+    }
+
+    private void waitForCapacity() throws JSchException {
+        try {
+            wait(100);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JSchException("Ожидание канала прервано", e);
+        }
+    }
+
+    private SessionSlot findSlotWithCapacity() {
+        for (SessionSlot slot : sessions) {
+            if (slot.openChannels < channelsPerSession && slot.connection.isConnected()) {
+                return slot;
+            }
+        }
+        return null;
+    }
+
+    private boolean isValid(PooledChannel pooled) {
+        if (!pooled.slot.connection.isConnected() || !pooled.channel.isConnected() || pooled.channel.isClosed()) {
+            return false;
+        }
+        if (System.currentTimeMillis() - pooled.lastUsed < validationIntervalMillis) {
+            return true;
+        }
+        try {
+            pooled.channel.realpath(".");
+            return true;
+        } catch (SftpException e) {
+            return false;
+        }
+    }
+
+    // Возврат исправного канала в пул
+    public void release(ChannelSftp channel) {
+        PooledChannel pooled;
+        synchronized (this) {
+            pooled = borrowed.remove(channel);
+            if (pooled == null) {
+                return;
+            }
+            if (!closed && channel.isConnected()) {
+                pooled.lastUsed = System.currentTimeMillis();
+                idle.addFirst(pooled);
+                pooled = null;
+            }
+        }
+        if (pooled != null) {
+            destroy(pooled);
+        }
+        permits.release();
+    }
+
+    // Возврат канала, который больше нельзя использовать (например, после обрыва связи)
+    public void invalidate(ChannelSftp channel) {
+        PooledChannel pooled;
+        synchronized (this) {
+            pooled = borrowed.remove(channel);
+        }
+        if (pooled != null) {
+            destroy(pooled);
+            permits.release();
+        }
+    }
+
+    // Выполнение действия на канале из пула с автоматическим возвратом
+    public <T> T execute(SftpCallback<T> callback) throws JSchException, SftpException {
+        ChannelSftp channel = borrow();
+        try {
+            T result = callback.doInSftp(channel);
+            release(channel);
+            return result;
+        } catch (SftpException e) {
+            if (e.id == ChannelSftp.SSH_FX_CONNECTION_LOST || e.id == ChannelSftp.SSH_FX_NO_CONNECTION
+                    || !channel.isConnected()) {
+                invalidate(channel);
+            } else {
+                release(channel);
+            }
+            throw e;
+        } catch (RuntimeException | Error e) {
+            invalidate(channel);
+            throw e;
+        }
+    }
+
+    private void destroy(PooledChannel pooled) {
+        if (pooled.channel.isConnected()) {
+            pooled.channel.disconnect();
+        }
+        boolean drop;
+        synchronized (this) {
+            pooled.slot.openChannels--;
+            notifyAll();
+            drop = pooled.slot.openChannels == 0 && (closed || !pooled.slot.connection.isConnected());
+        }
+        if (drop) {
+            removeSession(pooled.slot);
+        }
+    }
+
+    private void removeSession(SessionSlot slot) {
+        synchronized (this) {
+            sessions.remove(slot);
+            notifyAll();
+        }
+        slot.connection.disconnect();
+    }
+
+    // Закрытие простаивающих каналов и лишних сессий
+    private void evictIdle() {
+        List<PooledChannel> expired = new ArrayList<>();
+        List<SessionSlot> dropped = new ArrayList<>();
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            for (Iterator<PooledChannel> it = idle.iterator(); it.hasNext(); ) {
+                PooledChannel pooled = it.next();
+                if (!pooled.slot.connection.isConnected() || now - pooled.lastUsed > idleTimeoutMillis) {
+                    it.remove();
+                    expired.add(pooled);
+                }
+            }
+            for (PooledChannel pooled : expired) {
+                if (pooled.channel.isConnected()) {
+                    pooled.channel.disconnect();
+                }
+                pooled.slot.openChannels--;
+            }
+            int alive = sessions.size();
+            for (SessionSlot slot : sessions) {
+                boolean dead = !slot.connection.isConnected();
+                if (slot.openChannels == 0 && (dead || alive > minSessions)) {
+                    dropped.add(slot);
+                    alive--;
+                }
+            }
+            sessions.removeAll(dropped);
+        }
+        for (SessionSlot slot : dropped) {
+            slot.connection.disconnect();
+        }
+        replenish();
+    }
+
+    // Восстановление минимального числа сессий после обрывов и вытеснения
+    private void replenish() {
+        while (true) {
+            synchronized (this) {
+                if (closed || sessions.size() + pendingSessions >= minSessions) {
+                    return;
+                }
+                pendingSessions++;
+            }
+            SFTPConnection connection;
+            try {
+                connection = factory.create();
+            } catch (JSchException e) {
+                System.err.println("Не удалось восстановить сессию пула: " + e.getMessage());
+                synchronized (this) {
+                    pendingSessions--;
+                }
+                return;
+            }
+            SessionSlot slot = new SessionSlot(connection);
+            slot.openChannels = 1;
+            synchronized (this) {
+                pendingSessions--;
+                if (closed) {
+                    connection.disconnect();
+                    return;
+                }
+                sessions.add(slot);
+                idle.addLast(new PooledChannel(slot, connection.getChannelSftp()));
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        List<SessionSlot> toClose;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            idle.clear();
+            toClose = new ArrayList<>(sessions);
+            sessions.clear();
+        }
+        evictor.shutdownNow();
+        for (SessionSlot slot : toClose) {
+            slot.connection.disconnect();
+        }
+    }
+}
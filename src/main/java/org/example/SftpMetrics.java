@@ -0,0 +1,274 @@
+package org.example;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+// Метрики клиента: задержки по фазам, объем переданных данных и работа кэша.
+// Счетчики без блокировок (LongAdder), поэтому запись метрик не замедляет горячий путь.
+// Публикуются через JMX и, при -Dsftp.metrics.log=<мс>, периодически пишутся в java.util.logging
+public final class SftpMetrics implements SftpMetricsMXBean {
+
+    // Фазы операций: сетевые (CONNECT, LIST, STAT, FETCH, WRITE, RENAME) и вычислительные (PARSE, LOOKUP)
+    public enum Phase {
+        CONNECT, LIST, STAT, FETCH, PARSE, WRITE, RENAME, LOOKUP
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(SftpMetrics.class.getName());
+    private static final SftpMetrics INSTANCE = new SftpMetrics();
+
+    static {
+        INSTANCE.registerMBean();
+        long period = Long.getLong("sftp.metrics.log", 0L);
+        if (period > 0) {
+            INSTANCE.startLogging(period);
+        }
+    }
+
+    private final Map<Phase, LatencyHistogram> phases = new EnumMap<>(Phase.class);
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+    private final LongAdder entriesLoaded = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    private final LongAdder revalidations = new LongAdder();
+    private ScheduledExecutorService logger;
+
+    private SftpMetrics() {
+        for (Phase phase : Phase.values()) {
+            phases.put(phase, new LatencyHistogram());
+        }
+    }
+
+    public static SftpMetrics get() {
+        return INSTANCE;
+    }
+
+    // Запись длительности фазы, начатой в момент startNanos (System.nanoTime())
+    public void record(Phase phase, long startNanos) {
+        phases.get(phase).record(System.nanoTime() - startNanos);
+    }
+
+    public void recordNanos(Phase phase, long nanos) {
+        phases.get(phase).record(nanos);
+    }
+
+    public LatencyHistogram histogram(Phase phase) {
+        return phases.get(phase);
+    }
+
+    public void addBytesIn(long bytes) {
+        bytesIn.add(bytes);
+    }
+
+    public void addBytesOut(long bytes) {
+        bytesOut.add(bytes);
+    }
+
+    public void addEntriesLoaded(long entries) {
+        entriesLoaded.add(entries);
+    }
+
+    // Индекс отдан из кэша без обращения к серверу
+    public void cacheHit() {
+        cacheHits.increment();
+    }
+
+    // Индекс загружен с сервера
+    public void cacheMiss() {
+        cacheMisses.increment();
+    }
+
+    // Индекс подтвержден проверкой mtime/size без скачивания файла
+    public void revalidated() {
+        revalidations.increment();
+    }
+
+    // Поток чтения, который считает байты и время ожидания данных из сети.
+    // Время разбора потока — это общее время минус время ожидания (getReadNanos)
+    public static class CountingInputStream extends FilterInputStream {
+        private long bytes;
+        private long readNanos;
+
+        public CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            long start = System.nanoTime();
+            int b = super.read();
+            readNanos += System.nanoTime() - start;
+            if (b >= 0) {
+                bytes++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            long start = System.nanoTime();
+            int n = super.read(buffer, offset, length);
+            readNanos += System.nanoTime() - start;
+            if (n > 0) {
+                bytes += n;
+            }
+            return n;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getReadNanos() {
+            return readNanos;
+        }
+    }
+
+    // Поток записи, который считает отправленные байты
+    public static class CountingOutputStream extends FilterOutputStream {
+        private long bytes;
+
+        public CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) throws IOException {
+            out.write(buffer, offset, length);
+            bytes += length;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+    }
+
+    @Override
+    public List<PhaseStatistics> getPhases() {
+        List<PhaseStatistics> result = new ArrayList<>();
+        for (Map.Entry<Phase, LatencyHistogram> entry : phases.entrySet()) {
+            result.add(new PhaseStatistics(entry.getKey().name(), entry.getValue()));
+        }
+        return result;
+    }
+
+    @Override
+    public long getBytesIn() {
+        return bytesIn.sum();
+    }
+
+    @Override
+    public long getBytesOut() {
+        return bytesOut.sum();
+    }
+
+    @Override
+    public long getEntriesLoaded() {
+        return entriesLoaded.sum();
+    }
+
+    @Override
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    @Override
+    public long getCacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    @Override
+    public long getRevalidations() {
+        return revalidations.sum();
+    }
+
+    // Доля запросов индекса без скачивания файла (из кэша или после проверки mtime/size)
+    @Override
+    public double getCacheHitRate() {
+        long hits = cacheHits.sum() + revalidations.sum();
+        long total = hits + cacheMisses.sum();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public String getSummary() {
+        StringBuilder summary = new StringBuilder("Метрики SFTP-клиента:");
+        for (PhaseStatistics phase : getPhases()) {
+            if (phase.getCount() > 0) {
+                summary.append("\n  ").append(phase);
+            }
+        }
+        summary.append(String.format("%n  получено %d байт, отправлено %d байт, загружено записей %d",
+                getBytesIn(), getBytesOut(), getEntriesLoaded()));
+        summary.append(String.format("%n  кэш: попаданий %d, проверок %d, загрузок %d (%.1f%%)",
+                getCacheHits(), getRevalidations(), getCacheMisses(), getCacheHitRate() * 100));
+        return summary.toString();
+    }
+
+    @Override
+    public void reset() {
+        for (LatencyHistogram histogram : phases.values()) {
+            histogram.reset();
+        }
+        bytesIn.reset();
+        bytesOut.reset();
+        entriesLoaded.reset();
+        cacheHits.reset();
+        cacheMisses.reset();
+        revalidations.reset();
+    }
+
+    // Периодический вывод сводки в журнал
+    public synchronized void startLogging(long periodMillis) {
+        if (logger != null) {
+            logger.shutdownNow();
+        }
+        logger = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "sftp-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        logger.scheduleAtFixedRate(() -> LOGGER.info(getSummary()), periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stopLogging() {
+        if (logger != null) {
+            logger.shutdownNow();
+            logger = null;
+        }
+    }
+
+    private void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("org.example:type=SftpMetrics");
+            if (!server.isRegistered(name)) {
+                server.registerMBean(this, name);
+            }
+        } catch (Exception | LinkageError e) {
+            // метрики остаются доступны через get(), даже если JMX недоступен
+            LOGGER.warning("Не удалось зарегистрировать MBean метрик: " + e);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package org.example;
+
+import java.util.List;
+
+// Метрики клиента, доступные через JMX (org.example:type=SftpMetrics)
+public interface SftpMetricsMXBean {
+
+    List<PhaseStatistics> getPhases();
+
+    long getBytesIn();
+
+    long getBytesOut();
+
+    long getEntriesLoaded();
+
+    long getCacheHits();
+
+    long getCacheMisses();
+
+    long getRevalidations();
+
+    double getCacheHitRate();
+
+    String getSummary();
+
+    void reset();
+}
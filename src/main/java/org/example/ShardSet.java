@@ -0,0 +1,213 @@
+package org.example;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.SftpATTRS;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+// Набор json-файлов, между которыми разделены domain-IP пары: <имя>-00000-of-00004.json ... -00003-of-00004.json.
+// Новая пара попадает в шард CRC32(domain в нижнем регистре) mod N; у каждого шарда свой кэш,
+// поэтому загружаются и перезаписываются только изменившиеся файлы
+public class ShardSet {
+    private static final Pattern SHARD_NAME = Pattern.compile("(.+)-(\\d{5})-of-(\\d{5})\\.json(\\.gz)?",
+            Pattern.CASE_INSENSITIVE);
+
+    private final String[] fileNames;
+    private final PairCache[] caches;
+    // начало записей каждого шарда в объединенном индексе; меняется под блокировкой загрузки кэша каталога
+    private int[] offsets;
+
+    private ShardSet(String key, String[] fileNames) {
+        this.fileNames = fileNames;
+        this.caches = new PairCache[fileNames.length];
+        for (int i = 0; i < fileNames.length; i++) {
+            caches[i] = new PairCache(key + "/" + fileNames[i], true);
+        }
+    }
+
+    // Имя файла шарда i из count
+    public static String fileName(String base, int i, int count, boolean compressed) {
+        return String.format(Locale.ROOT, "%s-%05d-of-%05d.json%s", base, i, count, compressed ? ".gz" : "");
+    }
+
+    // Общее имя набора без номера шарда и расширения; null, если файл не является шардом
+    public static String baseName(String fileName) {
+        Matcher matcher = SHARD_NAME.matcher(fileName);
+        return matcher.matches() ? matcher.group(1) : null;
+    }
+
+    // Поиск полного набора шардов в списке файлов каталога; null, если полного набора нет
+    // (неполный набор, например во время записи новых шардов, не используется).
+    // Если полных наборов несколько (например, во время изменения числа шардов), выбирается самый свежий;
+    // при одинаковом времени — сжатый или обычный в зависимости от preferCompressed
+    public static ShardSet detect(String key, List<ChannelSftp.LsEntry> entries, boolean preferCompressed) {
+        Map<String, Integer> files = new LinkedHashMap<>();
+        for (ChannelSftp.LsEntry entry : entries) {
+            files.put(entry.getFilename(), entry.getAttrs().getMTime());
+        }
+        return detect(key, files, preferCompressed);
+    }
+
+    // То же по именам файлов и их mtime
+    public static ShardSet detect(String key, Map<String, Integer> files, boolean preferCompressed) {
+        Map<String, String[]> groups = new HashMap<>();
+        Map<String, Integer> modified = new HashMap<>();
+        for (Map.Entry<String, Integer> file : files.entrySet()) {
+            Matcher matcher = SHARD_NAME.matcher(file.getKey());
+            if (!matcher.matches()) {
+                continue;
+            }
+            int index = Integer.parseInt(matcher.group(2));
+            int count = Integer.parseInt(matcher.group(3));
+            if (count == 0 || index >= count) {
+                continue;
+            }
+            String group = matcher.group(1) + "/" + count + (matcher.group(4) != null ? "/gz" : "");
+            groups.computeIfAbsent(group, g -> new String[count])[index] = file.getKey();
+            modified.merge(group, file.getValue(), Math::max);
+        }
+        String best = null;
+        for (Map.Entry<String, String[]> group : groups.entrySet()) {
+            if (Arrays.asList(group.getValue()).contains(null)) {
+                continue;
+            }
+            if (best == null || isPreferred(group.getKey(), best, modified, preferCompressed)) {
+                best = group.getKey();
+            }
+        }
+        return best != null ? new ShardSet(key, groups.get(best)) : null;
+    }
+
+    private static boolean isPreferred(String group, String best, Map<String, Integer> modified,
+                                       boolean preferCompressed) {
+        int byTime = Integer.compare(modified.get(group), modified.get(best));
+        if (byTime != 0) {
+            return byTime > 0;
+        }
+        return group.endsWith("/gz") == preferCompressed;
+    }
+
+    public int size() {
+        return fileNames.length;
+    }
+
+    public String fileName(int i) {
+        return fileNames[i];
+    }
+
+    public PairCache cache(int i) {
+        return caches[i];
+    }
+
+    // Тот же набор файлов, что и в other (кэши шардов можно переиспользовать)
+    public boolean sameFiles(ShardSet other) {
+        return other != null && Arrays.equals(fileNames, other.fileNames);
+    }
+
+    // Шард для новой пары
+    public int shardOf(String domain) {
+        return shardOf(domain, fileNames.length);
+    }
+
+    public static int shardOf(String domain, int count) {
+        CRC32 crc = new CRC32();
+        crc.update(domain.toLowerCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8));
+        return (int) (crc.getValue() % count);
+    }
+
+    // Объединенный индекс: записи шардов подряд в порядке номеров.
+    // Записи без разбора в него не попадают и остаются в индексах своих шардов
+    public DomainIPIndex merge() {
+        int total = 0;
+        for (PairCache cache : caches) {
+            total += cache.getIndex().size();
+        }
+        DomainIPIndex.Builder merged = new DomainIPIndex.Builder(total);
+        int[] starts = new int[caches.length + 1];
+        for (int s = 0; s < caches.length; s++) {
+            DomainIPIndex shard = caches[s].getIndex();
+            starts[s] = merged.size();
+            for (int i = 0; i < shard.size(); i++) {
+                merged.add(shard.domainAt(i), shard.ipAt(i));
+            }
+        }
+        starts[caches.length] = merged.size();
+        offsets = starts;
+        return merged.build();
+    }
+
+    // Разделение измененного объединенного индекса по шардам. Записи, которые были в merged,
+    // остаются в своем шарде, новые распределяются по хэшу domain.
+    // Возвращает индекс для каждого изменившегося шарда и null для остальных
+    public DomainIPIndex[] split(DomainIPIndex merged, DomainIPIndex updated) {
+        DomainIPIndex.Builder[] shards = new DomainIPIndex.Builder[fileNames.length];
+        for (int s = 0; s < shards.length; s++) {
+            shards[s] = new DomainIPIndex.Builder();
+            shards[s].addForeign(caches[s].getIndex());
+        }
+        int[] assigned = new int[updated.size()];
+        for (int i = 0; i < updated.size(); i++) {
+            String domain = updated.domainAt(i);
+            int position = merged.indexOfDomain(domain);
+            assigned[i] = position >= 0 ? shardAt(position) : shardOf(domain);
+            shards[assigned[i]].add(domain, updated.ipAt(i));
+        }
+        // записи каждого шарда сравниваются с прежними за один проход
+        boolean[] changed = new boolean[shards.length];
+        int[] positions = Arrays.copyOf(offsets, shards.length);
+        for (int i = 0; i < updated.size(); i++) {
+            int s = assigned[i];
+            int position = positions[s]++;
+            if (!changed[s] && (position >= offsets[s + 1] || merged.ipAt(position) != updated.ipAt(i)
+                    || !merged.domainAt(position).equals(updated.domainAt(i)))) {
+                changed[s] = true;
+            }
+        }
+        DomainIPIndex[] result = new DomainIPIndex[shards.length];
+        for (int s = 0; s < shards.length; s++) {
+            if (changed[s] || positions[s] != offsets[s + 1]) {
+                result[s] = shards[s].build();
+            }
+        }
+        return result;
+    }
+
+    private int shardAt(int position) {
+        int found = Arrays.binarySearch(offsets, position);
+        if (found < 0) {
+            return -found - 2;
+        }
+        // у пустых шардов начало совпадает со следующим шардом
+        while (offsets[found + 1] == position) {
+            found++;
+        }
+        return found;
+    }
+
+    // Все кэши шардов соответствуют версиям файлов с атрибутами attrs
+    public boolean matches(SftpATTRS[] attrs) {
+        for (int i = 0; i < caches.length; i++) {
+            if (!caches[i].matches(attrs[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Атрибуты файлов шардов из списка каталога; null для отсутствующих
+    public SftpATTRS[] attrsOf(List<ChannelSftp.LsEntry> entries) {
+        Map<String, SftpATTRS> byName = new HashMap<>();
+        for (ChannelSftp.LsEntry entry : entries) {
+            byName.put(entry.getFilename(), entry.getAttrs());
+        }
+        SftpATTRS[] attrs = new SftpATTRS[fileNames.length];
+        for (int i = 0; i < fileNames.length; i++) {
+            attrs[i] = byName.get(fileNames[i]);
+        }
+        return attrs;
+    }
+}
@@ -0,0 +1,146 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Каталог локальных снимков индекса: по одному файлу на сервер и каталог.
+// Снимки пишутся в фоновом потоке; несколько изменений подряд дают одну запись.
+// Каждая запись создает новый файл с номером версии, а не заменяет прежний: прежний снимок может быть
+// еще отображен в память, и в Windows такой файл нельзя ни заменить, ни удалить
+public class SnapshotStore {
+    private static final String SUFFIX = ".idx";
+
+    private final Path directory;
+    private long lastVersion;
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "sftp-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public SnapshotStore(Path directory) {
+        this.directory = directory;
+    }
+
+    // Самый новый читаемый снимок для ключа кэша; null, если снимка нет или все версии повреждены
+    public IndexSnapshot open(String key) {
+        for (Path path : versions(key)) {
+            try {
+                return IndexSnapshot.open(path);
+            } catch (IOException e) {
+                System.err.println("Локальный снимок не прочитан: " + path + " (" + e.getMessage() + ")");
+            }
+        }
+        return null;
+    }
+
+    // Сохранение текущего состояния кэша в фоне
+    public void save(PairCache cache) {
+        if (!pending.add(cache.getKey())) {
+            return; // запись уже запланирована и возьмет самое свежее состояние
+        }
+        executor.execute(() -> {
+            pending.remove(cache.getKey());
+            String fileName;
+            int mtime;
+            long size;
+            DomainIPIndex index;
+            synchronized (cache) {
+                fileName = cache.getFileName();
+                mtime = cache.getMTime();
+                size = cache.getSize();
+                index = cache.getIndex();
+            }
+            if (fileName == null || index == null) {
+                return;
+            }
+            try {
+                Files.createDirectories(directory);
+                Path path = nextVersion(cache.getKey());
+                IndexSnapshot.write(path, fileName, mtime, size, index);
+                removeOlder(cache.getKey(), path);
+            } catch (IOException e) {
+                System.err.println("Ошибка записи локального снимка: " + e.getMessage());
+            }
+        });
+    }
+
+    // Выполнение фоновой задачи (проверка снимка по файлу на сервере)
+    public void execute(Runnable task) {
+        executor.execute(task);
+    }
+
+    // Путь для новой версии снимка; номер версии растет и не совпадает с уже существующими файлами
+    private Path nextVersion(String key) {
+        long version = Math.max(System.currentTimeMillis(), lastVersion + 1);
+        Path path = directory.resolve(prefixFor(key) + version + SUFFIX);
+        while (Files.exists(path)) {
+            path = directory.resolve(prefixFor(key) + ++version + SUFFIX);
+        }
+        lastVersion = version;
+        return path;
+    }
+
+    // Удаление прежних версий; отображенный в память файл в Windows не удаляется и будет удален при следующей записи
+    private void removeOlder(String key, Path current) {
+        for (Path path : versions(key)) {
+            if (!path.equals(current)) {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    // Файлы снимков для ключа кэша, от новых к старым
+    private List<Path> versions(String key) {
+        String prefix = prefixFor(key);
+        List<Path> versions = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return versions;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(path -> version(path, prefix) >= 0).forEach(versions::add);
+        } catch (IOException e) {
+            System.err.println("Ошибка чтения каталога снимков: " + e.getMessage());
+        }
+        versions.sort(Comparator.comparingLong((Path path) -> version(path, prefix)).reversed());
+        return versions;
+    }
+
+    // Номер версии из имени файла "<префикс><версия>.idx"; -1, если файл не относится к ключу
+    private static long version(Path path, String prefix) {
+        String name = path.getFileName().toString();
+        if (!name.startsWith(prefix) || !name.endsWith(SUFFIX)) {
+            return -1;
+        }
+        String digits = name.substring(prefix.length(), name.length() - SUFFIX.length());
+        if (digits.isEmpty() || digits.length() > 18 || !digits.chars().allMatch(Character::isDigit)) {
+            return -1;
+        }
+        return Long.parseLong(digits);
+    }
+
+    // Префикс имени файла из ключа кэша: читаемая часть и контрольная сумма полного ключа
+    private static String prefixFor(String key) {
+        CRC32 crc = new CRC32();
+        crc.update(key.getBytes(StandardCharsets.UTF_8));
+        String name = key.replaceAll("[^A-Za-z0-9._-]", "_");
+        if (name.length() > 100) {
+            name = name.substring(0, 100);
+        }
+        return name + "-" + Long.toHexString(crc.getValue()) + ".";
+    }
+}
@@ -0,0 +1,223 @@
+package org.example;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import com.jcraft.jsch.SftpATTRS;
+import com.jcraft.jsch.SftpException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Блокировка записи между клиентами. Проверка mtime/size перед записью не атомарна: два клиента могут
+// одновременно пройти проверку и затереть изменения друг друга. Блокировка — каталог, созданный mkdir:
+// сервер создает его только для одного клиента. Внутри каталога лежит файл с токеном владельца.
+// Пока блокировка удерживается, отдельный канал той же сессии периодически обновляет mtime каталога.
+// Если mtime не меняется дольше staleMillis (время отсчитывается локально, без учета часов сервера),
+// владелец считается упавшим, и блокировка снимается. Снимает блокировку только владелец
+public class WriteLock {
+    private static final String OWNER = "owner";
+    // число попыток создать каталог, который каждый раз оказывается уже удаленным
+    private static final int MAX_MISSING = 5;
+    // обновление mtime не чаще раза в секунду: точность mtime на сервере — секунды
+    private static final long MIN_HEARTBEAT_MILLIS = 1000;
+    private static final ScheduledExecutorService HEARTBEAT = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "sftp-lock-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final String name;
+    private final String token;
+    private final Session session;
+    private final String directory;
+    private final ScheduledFuture<?> heartbeat;
+    // канал для обновления mtime; открывается при первом обновлении, быстрые изменения его не открывают
+    private ChannelSftp heartbeatChannel;
+    // токен в каталоге блокировки сменился: ее сняли как оставленную и, возможно, захватил другой клиент
+    private volatile boolean lost;
+    private boolean released;
+
+    private WriteLock(String name, String token, Session session, String directory, long staleMillis) {
+        this.name = name;
+        this.token = token;
+        this.session = session;
+        this.directory = directory;
+        long interval = Math.max(staleMillis / 3, MIN_HEARTBEAT_MILLIS);
+        this.heartbeat = HEARTBEAT.scheduleWithFixedDelay(this::beat, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    // Ожидание и захват блокировки
+    public static WriteLock acquire(ChannelSftp channelSftp, String name, long staleMillis) throws SftpException {
+        int observedMTime = -1;
+        String observedOwner = null;
+        long observedSince = 0;
+        int missing = 0;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                channelSftp.mkdir(name);
+                return create(channelSftp, name, staleMillis);
+            } catch (SftpException e) {
+                SftpATTRS attrs = statOrNull(channelSftp, name);
+                if (attrs == null) {
+                    // блокировку только что сняли; повторяющаяся ошибка — каталог нельзя создать
+                    if (++missing == MAX_MISSING) {
+                        throw e;
+                    }
+                    continue;
+                }
+                if (!attrs.isDir()) {
+                    throw e;
+                }
+                String owner = readOwner(channelSftp, name);
+                long now = System.currentTimeMillis();
+                if (attrs.getMTime() != observedMTime || !Objects.equals(owner, observedOwner)) {
+                    observedMTime = attrs.getMTime();
+                    observedOwner = owner;
+                    observedSince = now;
+                } else if (now - observedSince > staleMillis) {
+                    breakStale(channelSftp, name, owner);
+                    observedMTime = -1;
+                    continue;
+                }
+            }
+            try {
+                Thread.sleep(ThreadLocalRandom.current().nextLong(5, 10L * Math.min(attempt, 10) + 10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SftpException(ChannelSftp.SSH_FX_FAILURE, "Ожидание блокировки записи прервано", e);
+            }
+        }
+    }
+
+    // Запись токена владельца в созданный каталог и запуск обновления mtime
+    private static WriteLock create(ChannelSftp channelSftp, String name, long staleMillis) throws SftpException {
+        String token = UUID.randomUUID().toString();
+        Session session;
+        try {
+            session = channelSftp.getSession();
+            channelSftp.put(new ByteArrayInputStream(token.getBytes(StandardCharsets.UTF_8)), name + "/" + OWNER);
+        } catch (JSchException | SftpException e) {
+            removeQuietly(channelSftp, name);
+            throw e instanceof SftpException ? (SftpException) e
+                    : new SftpException(ChannelSftp.SSH_FX_NO_CONNECTION, e.getMessage(), e);
+        }
+        return new WriteLock(name, token, session, channelSftp.pwd(), staleMillis);
+    }
+
+    // Снятие блокировки, оставленной упавшим клиентом. Каталог сначала переименовывается: переименование
+    // выполнит только один из ожидающих клиентов, а токен проверяется еще раз непосредственно перед ним
+    private static void breakStale(ChannelSftp channelSftp, String name, String owner) {
+        try {
+            if (!Objects.equals(readOwner(channelSftp, name), owner)) {
+                return;
+            }
+            String stale = name + "." + UUID.randomUUID() + ".stale";
+            channelSftp.rename(name, stale);
+            System.out.println("Снята блокировка записи, оставленная другим клиентом: " + name);
+            removeQuietly(channelSftp, stale);
+        } catch (SftpException e) {
+            // блокировку уже снял или освободил другой клиент
+        }
+    }
+
+    // Обновление mtime каталога, пока блокировка принадлежит этому клиенту.
+    // ChannelSftp не потокобезопасен, поэтому используется отдельный канал той же сессии
+    private synchronized void beat() {
+        if (lost || released) {
+            return;
+        }
+        try {
+            if (heartbeatChannel == null) {
+                ChannelSftp channel = (ChannelSftp) session.openChannel("sftp");
+                channel.connect();
+                channel.cd(directory);
+                heartbeatChannel = channel;
+            }
+            if (!token.equals(readOwner(heartbeatChannel, name))) {
+                lost = true;
+                System.err.println("Блокировка записи " + name + " снята другим клиентом");
+                return;
+            }
+            heartbeatChannel.setMtime(name, (int) (System.currentTimeMillis() / 1000));
+        } catch (JSchException | SftpException e) {
+            System.err.println("Не удалось обновить блокировку записи " + name + ": " + e.getMessage());
+        }
+    }
+
+    // Снятие блокировки; каталог удаляется, только если в нем по-прежнему токен этого клиента
+    public void release(ChannelSftp channelSftp) {
+        synchronized (this) {
+            released = true;
+            heartbeat.cancel(false);
+            if (heartbeatChannel != null) {
+                heartbeatChannel.disconnect();
+            }
+        }
+        try {
+            if (lost || !token.equals(readOwner(channelSftp, name))) {
+                System.err.println("Блокировка записи " + name + " принадлежит другому клиенту и не снимается");
+                return;
+            }
+            channelSftp.rm(name + "/" + OWNER);
+            channelSftp.rmdir(name);
+        } catch (SftpException e) {
+            System.err.println("Не удалось снять блокировку записи " + name + ": " + e.getMessage());
+        }
+    }
+
+    // Токен владельца; null, если файла нет (каталог только что создан или уже удаляется)
+    private static String readOwner(ChannelSftp channelSftp, String name) throws SftpException {
+        ByteArrayOutputStream owner = new ByteArrayOutputStream();
+        try (InputStream inputStream = channelSftp.get(name + "/" + OWNER)) {
+            byte[] buffer = new byte[64];
+            int read;
+            while ((read = inputStream.read(buffer)) > 0) {
+                owner.write(buffer, 0, read);
+            }
+        } catch (SftpException e) {
+            if (e.id == ChannelSftp.SSH_FX_NO_SUCH_FILE) {
+                return null;
+            }
+            throw e;
+        } catch (IOException e) {
+            throw new SftpException(ChannelSftp.SSH_FX_FAILURE, e.getMessage(), e);
+        }
+        return new String(owner.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static SftpATTRS statOrNull(ChannelSftp channelSftp, String fileName) throws SftpException {
+        try {
+            return channelSftp.stat(fileName);
+        } catch (SftpException e) {
+            if (e.id == ChannelSftp.SSH_FX_NO_SUCH_FILE) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    // Удаление каталога блокировки вместе с файлом владельца
+    private static void removeQuietly(ChannelSftp channelSftp, String directory) {
+        try {
+            channelSftp.rm(directory + "/" + OWNER);
+        } catch (SftpException ignored) {
+            // файла владельца могло не быть
+        }
+        try {
+            channelSftp.rmdir(directory);
+        } catch (SftpException e) {
+            System.err.println("Не удалось удалить каталог блокировки " + directory + ": " + e.getMessage());
+        }
+    }
+}
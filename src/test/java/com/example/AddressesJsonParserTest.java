@@ -0,0 +1,132 @@
+package com.example;
+
+import org.example.AddressesJsonParser;
+import org.example.AddressesJsonWriter;
+import org.example.DomainIPIndex;
+import org.testng.Assert;
+import org.testng.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+public class AddressesJsonParserTest {
+
+    private static List<String> parse(String json) throws IOException {
+        List<String> result = new ArrayList<>();
+        AddressesJsonParser.parse(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)),
+                (domain, ip) -> result.add(domain + "=" + ip));
+        return result;
+    }
+
+    @Test (description = "Проверка разбора компактного файла")
+    public void testParseCompact() throws IOException {
+        List<String> pairs = parse("{\"addresses\":[{\"domain\":\"first.domain\",\"ip\":\"192.168.0.1\"},"
+                + "{\"domain\":\"second.domain\",\"ip\":\"192.168.0.2\"}]}");
+        Assert.assertEquals(pairs, Arrays.asList("first.domain=192.168.0.1", "second.domain=192.168.0.2"));
+    }
+
+    @Test (description = "Проверка разбора с пробелами, переставленными и лишними ключами")
+    public void testParseFormatted() throws IOException {
+        List<String> pairs = parse("{\n  \"version\" : 2,\n  \"addresses\" : [\n"
+                + "    { \"ip\" : \"10.0.0.1\", \"comment\": {\"a\": [1, \"]\"]}, \"domain\" : \"a.com\" }\n  ],\n"
+                + "  \"flag\": true\n}\n");
+        Assert.assertEquals(pairs, Collections.singletonList("a.com=10.0.0.1"));
+    }
+
+    @Test (description = "Проверка значений со спецсимволами и escape-последовательностями")
+    public void testParseEscapes() throws IOException {
+        List<String> pairs = parse("{\"addresses\":[{\"domain\":\"a]:},{\\\"b\\u0041\\\\домен\",\"ip\":\"1.1.1.1\"}]}");
+        Assert.assertEquals(pairs, Collections.singletonList("a]:},{\"bA\\домен=1.1.1.1"));
+    }
+
+    @Test (description = "Проверка пустого файла и пустого массива")
+    public void testParseEmpty() throws IOException {
+        Assert.assertTrue(parse("").isEmpty(), "Пустой файл не содержит пар");
+        Assert.assertTrue(parse("{\"addresses\":[]}").isEmpty(), "Пустой массив не содержит пар");
+    }
+
+    @Test (description = "Проверка ошибки на поврежденном файле", expectedExceptions = IOException.class)
+    public void testParseMalformed() throws IOException {
+        parse("{\"addresses\":[{\"domain\":\"a.com\",\"ip\":\"1.1.1.1\"}");
+    }
+
+    @Test (description = "Проверка отказа на недопустимых байтах UTF-8")
+    public void testParseInvalidUtf8() {
+        int[][] invalid = {{0x80}, {0xBF}, {0xC0, 0xAF}, {0xC1, 0xBF}, {0xF5, 0x80, 0x80, 0x80}, {0xFF},
+                {0xE0, 0x80, 0xAF}, {0xED, 0xA0, 0x80}, {0xF4, 0x90, 0x80, 0x80}};
+        for (int[] sequence : invalid) {
+            ByteArrayOutputStream json = new ByteArrayOutputStream();
+            byte[] head = "{\"addresses\":[{\"domain\":\"a".getBytes(StandardCharsets.UTF_8);
+            json.write(head, 0, head.length);
+            for (int b : sequence) {
+                json.write(b);
+            }
+            byte[] rest = "\",\"ip\":\"1.1.1.1\"}]}".getBytes(StandardCharsets.UTF_8);
+            json.write(rest, 0, rest.length);
+            try {
+                AddressesJsonParser.parse(new ByteArrayInputStream(json.toByteArray()), (domain, ip) -> { });
+                Assert.fail("Последовательность " + Arrays.toString(sequence) + " должна отклоняться");
+            } catch (IOException e) {
+                Assert.assertTrue(e.getMessage().startsWith("Неверный формат JSON"),
+                        "Ошибка должна сообщать о неверном формате: " + e.getMessage());
+            }
+        }
+    }
+
+    @Test (description = "Проверка разбора многобайтовых символов UTF-8")
+    public void testParseValidUtf8() throws IOException {
+        List<String> pairs = parse("{\"addresses\":[{\"domain\":\"é€😀\",\"ip\":\"1.1.1.1\"}]}");
+        Assert.assertEquals(pairs, Collections.singletonList("é€😀=1.1.1.1"), "Символы из 2, 3 и 4 байт должны сохраняться");
+    }
+
+    @Test (description = "Проверка сохранения записей с невалидным IP и без ключей при перезаписи")
+    public void testForeignRecordsRoundTrip() throws IOException {
+        String json = "{\"addresses\":[{\"domain\":\"a.com\",\"ip\":\"1.1.1.1\"},"
+                + "{\"domain\":\"x.com\", \"ip\":\"10.0.0.300\"},{\"host\":\"y.com\",\"n\":[1,2]},"
+                + "{\"domain\":\"b.com\",\"ip\":\"2.2.2.2\"}]}";
+        DomainIPIndex.Builder builder = new DomainIPIndex.Builder();
+        AddressesJsonParser.parse(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)),
+                new AddressesJsonParser.LocatedPairHandler() {
+                    @Override
+                    public boolean pair(String domain, String ip, long start, long end) {
+                        return builder.add(domain, ip);
+                    }
+
+                    @Override
+                    public void unparsed(byte[] record, long start, long end) {
+                        builder.addForeign(record);
+                    }
+                });
+        DomainIPIndex index = builder.build();
+        Assert.assertEquals(index.size(), 2, "В индекс попадают только валидные пары");
+        Assert.assertEquals(index.foreignCount(), 2, "Непринятые записи должны сохраняться");
+
+        DomainIPIndex.Builder updated = index.toBuilder();
+        updated.add("c.com", "3.3.3.3");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AddressesJsonWriter.write(updated.build(), out);
+        String written = out.toString("UTF-8");
+        Assert.assertTrue(written.contains("{\"domain\":\"x.com\", \"ip\":\"10.0.0.300\"}"),
+                "Запись с невалидным IP должна остаться без изменений: " + written);
+        Assert.assertTrue(written.contains("{\"host\":\"y.com\",\"n\":[1,2]}"),
+                "Запись без domain и ip должна остаться без изменений: " + written);
+        Assert.assertEquals(parse(written), Arrays.asList("a.com=1.1.1.1", "b.com=2.2.2.2", "c.com=3.3.3.3",
+                "x.com=10.0.0.300"), "Перезаписанный файл должен разбираться");
+    }
+
+    @Test (description = "Проверка записи и повторного разбора доменов со спецсимволами")
+    public void testWriteEscapesRoundTrip() throws IOException {
+        DomainIPIndex.Builder builder = new DomainIPIndex.Builder();
+        builder.add("quote\"back\\slash", "1.1.1.1");
+        builder.add("tab\tnew\nline\u0001", "2.2.2.2");
+        builder.add("домен.рф", "3.3.3.3");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AddressesJsonWriter.write(builder.build(), out);
+        Assert.assertEquals(parse(out.toString("UTF-8")), Arrays.asList("quote\"back\\slash=1.1.1.1",
+                "tab\tnew\nline\u0001=2.2.2.2", "домен.рф=3.3.3.3"), "Домены должны сохраняться без искажений");
+        Assert.assertEquals(AddressesJsonWriter.escape("plain.domain"), "plain.domain", "Строка без спецсимволов не меняется");
+    }
+}
@@ -0,0 +1,117 @@
+package com.example;
+
+import com.jcraft.jsch.ChannelSftp;
+import org.example.*;
+import org.testng.Assert;
+import org.testng.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+// Два клиента с независимыми кэшами одновременно изменяют один файл на сервере
+public class ConcurrentWriteTest {
+
+    private static final int PAIRS = 15;
+
+    private EmbeddedSftpServer server;
+    private SFTPConnection first;
+    private SFTPConnection second;
+    private ExecutorService executor;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        server = new EmbeddedSftpServer();
+        server.writeAddresses("first.domain", "192.168.0.1", "second.domain", "192.168.0.2");
+        // разные имена хоста — разные кэши SFTPClient, как у двух процессов
+        first = server.connect("127.0.0.1");
+        second = server.connect("localhost");
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterMethod
+    public void tearDown() throws IOException {
+        executor.shutdownNow();
+        first.disconnect();
+        second.disconnect();
+        server.close();
+    }
+
+    private DomainIPIndex readServerFile() throws IOException {
+        DomainIPIndex.Builder builder = new DomainIPIndex.Builder();
+        byte[] content = server.read(EmbeddedSftpServer.FILE_NAME).getBytes(StandardCharsets.UTF_8);
+        AddressesJsonParser.parse(new ByteArrayInputStream(content), builder::add);
+        return builder.build();
+    }
+
+    private static String ip(int client, int i) {
+        return "10." + client + ".0." + i;
+    }
+
+    @Test (description = "Проверка одновременного добавления пар двумя клиентами: ни одна запись не теряется")
+    public void testConcurrentAppends() throws Exception {
+        Future<?> a = executor.submit(() -> {
+            for (int i = 0; i < PAIRS; i++) {
+                SFTPClient.addPair(first.getChannelSftp(), "a" + i + ".com", ip(1, i));
+            }
+            return null;
+        });
+        Future<?> b = executor.submit(() -> {
+            for (int i = 0; i < PAIRS; i++) {
+                SFTPClient.addPair(second.getChannelSftp(), "b" + i + ".com", ip(2, i));
+            }
+            return null;
+        });
+        a.get(60, TimeUnit.SECONDS);
+        b.get(60, TimeUnit.SECONDS);
+
+        DomainIPIndex index = readServerFile();
+        Assert.assertEquals(index.size(), 2 + 2 * PAIRS, "В файле должны быть все добавленные пары");
+        for (int i = 0; i < PAIRS; i++) {
+            Assert.assertEquals(index.getIP("a" + i + ".com"), ip(1, i), "Пара первого клиента a" + i + ".com");
+            Assert.assertEquals(index.getIP("b" + i + ".com"), ip(2, i), "Пара второго клиента b" + i + ".com");
+        }
+    }
+
+    @Test (description = "Проверка одновременных добавлений, удалений и пакетов: файл остается корректным")
+    public void testConcurrentMixedChanges() throws Exception {
+        Future<?> a = executor.submit(() -> {
+            ChannelSftp channel = first.getChannelSftp();
+            for (int i = 0; i < PAIRS; i++) {
+                List<PairChange> changes = new ArrayList<>();
+                changes.add(PairChange.add("a" + i + ".com", ip(1, i)));
+                changes.add(PairChange.add("c" + i + ".com", ip(3, i)));
+                for (BatchResult result : SFTPClient.applyBatch(channel, changes)) {
+                    Assert.assertTrue(result.isApplied(), "Изменение пакета должно быть применено: " + result);
+                }
+            }
+            return null;
+        });
+        Future<?> b = executor.submit(() -> {
+            ChannelSftp channel = second.getChannelSftp();
+            for (int i = 0; i < PAIRS; i++) {
+                SFTPClient.addPair(channel, "b" + i + ".com", ip(2, i));
+                if (i % 3 == 0) {
+                    SFTPClient.deletePair(channel, "b" + i + ".com");
+                }
+            }
+            SFTPClient.deletePair(channel, "first.domain");
+            return null;
+        });
+        a.get(60, TimeUnit.SECONDS);
+        b.get(60, TimeUnit.SECONDS);
+
+        DomainIPIndex index = readServerFile();
+        Assert.assertNull(index.getIP("first.domain"), "Удаленная пара не должна вернуться");
+        Assert.assertEquals(index.getIP("second.domain"), "192.168.0.2", "Исходная пара должна сохраниться");
+        for (int i = 0; i < PAIRS; i++) {
+            Assert.assertEquals(index.getIP("a" + i + ".com"), ip(1, i), "Пара из пакета a" + i + ".com");
+            Assert.assertEquals(index.getIP("c" + i + ".com"), ip(3, i), "Пара из пакета c" + i + ".com");
+            String expected = i % 3 == 0 ? null : ip(2, i);
+            Assert.assertEquals(index.getIP("b" + i + ".com"), expected, "Пара второго клиента b" + i + ".com");
+        }
+    }
+}
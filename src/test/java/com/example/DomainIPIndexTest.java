@@ -0,0 +1,54 @@
+package com.example;
+
+import org.example.DomainIPIndex;
+import org.testng.Assert;
+import org.testng.annotations.*;
+
+public class DomainIPIndexTest {
+
+    private DomainIPIndex index;
+
+    @BeforeClass
+    public void setUp() {
+        DomainIPIndex.Builder builder = new DomainIPIndex.Builder();
+        builder.add("first.domain", "192.168.0.1");
+        builder.add("second.domain", "192.168.000.002");
+        builder.add("FIRST.domain", "10.0.0.1");
+        index = builder.build();
+    }
+
+    @Test (description = "Проверка поиска IP по домену без учета регистра")
+    public void testGetIPCaseInsensitive() {
+        Assert.assertEquals(index.getIP("First.Domain"), "192.168.0.1", "Регистр не должен влиять на поиск");
+    }
+
+    @Test (description = "Проверка поиска домена по IP с ведущими нулями")
+    public void testGetDomainNormalized() {
+        Assert.assertEquals(index.getDomain("192.168.0.2"), "second.domain", "Запрос должен нормализоваться");
+        Assert.assertEquals(index.getDomain("192.168.0.001"), "first.domain", "Запрос должен нормализоваться");
+        Assert.assertEquals(index.ipStringAt(1), "192.168.0.2", "IP должен храниться в нормализованном виде");
+    }
+
+    @Test (description = "Проверка приоритета первой записи при дубликатах")
+    public void testDuplicateKeepsFirst() {
+        Assert.assertEquals(index.getIP("first.domain"), "192.168.0.1", "Должна использоваться первая запись");
+        Assert.assertEquals(index.size(), 3, "Дубликаты должны сохраняться в хранилище");
+    }
+
+    @Test (description = "Проверка отсутствующих значений")
+    public void testNotFound() {
+        Assert.assertNull(index.getIP("nonexistent.domain"), "Несуществующий домен не должен находиться");
+        Assert.assertNull(index.getDomain("10.0.0.2"), "Несуществующий IP не должен находиться");
+        Assert.assertNull(index.getDomain("not.an.ip"), "Невалидный IP не должен находиться");
+    }
+
+    @Test (description = "Проверка отказа от невалидного IP и неизменности построенного индекса")
+    public void testBuilder() {
+        DomainIPIndex.Builder builder = index.toBuilder();
+        Assert.assertFalse(builder.add("bad.domain", "256.0.0.1"), "Невалидный IP не должен добавляться");
+        Assert.assertTrue(builder.add("third.domain", "255.255.255.255"), "Валидный IP должен добавляться");
+        DomainIPIndex updated = builder.build();
+        Assert.assertEquals(updated.getDomain("255.255.255.255"), "third.domain", "Новая пара должна находиться");
+        Assert.assertNull(index.getDomain("255.255.255.255"), "Исходный индекс не должен меняться");
+    }
+}
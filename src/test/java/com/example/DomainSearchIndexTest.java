@@ -0,0 +1,83 @@
+package com.example;
+
+import org.example.DomainIPIndex;
+import org.example.DomainSearchIndex;
+import org.example.PairPage;
+import org.testng.Assert;
+import org.testng.annotations.*;
+
+import java.util.*;
+
+public class DomainSearchIndexTest {
+
+    private DomainSearchIndex search;
+
+    @BeforeClass
+    public void setUp() {
+        DomainIPIndex.Builder builder = new DomainIPIndex.Builder();
+        builder.add("api-1.corp.example.com", "10.0.0.1");
+        builder.add("corp.example.com", "10.0.0.2");
+        builder.add("Web.Corp.Example.com", "10.0.0.3");
+        builder.add("api-2.example.com", "10.0.0.4");
+        builder.add("xcorp.example.com", "10.0.0.5");
+        builder.add("db.eu.corp.example.com", "10.0.0.6");
+        builder.add("api.other.org", "10.0.0.7");
+        search = builder.build().getSearchIndex();
+    }
+
+    private static Set<String> domains(PairPage page) {
+        Set<String> result = new HashSet<>();
+        for (int n = 0; n < page.size(); n++) {
+            result.add(page.getDomain(n));
+        }
+        return result;
+    }
+
+    @Test (description = "Проверка поиска всех доменов зоны")
+    public void testZone() {
+        PairPage page = search.find("*.corp.example.com", 0, 100);
+        Assert.assertEquals(domains(page), new HashSet<>(Arrays.asList(
+                "api-1.corp.example.com", "Web.Corp.Example.com", "db.eu.corp.example.com")),
+                "Зона не должна включать саму себя и соседние домены");
+        Assert.assertEquals(page.getTotal(), 3);
+    }
+
+    @Test (description = "Проверка поиска по префиксу без учета регистра")
+    public void testPrefix() {
+        Assert.assertEquals(domains(search.find("API-*", 0, 100)),
+                new HashSet<>(Arrays.asList("api-1.corp.example.com", "api-2.example.com")));
+    }
+
+    @Test (description = "Проверка точного совпадения и шаблона со звездочкой внутри")
+    public void testExactAndWildcard() {
+        Assert.assertEquals(domains(search.find("CORP.example.com", 0, 100)),
+                Collections.singleton("corp.example.com"));
+        Assert.assertEquals(domains(search.find("api*.example.com", 0, 100)),
+                new HashSet<>(Arrays.asList("api-1.corp.example.com", "api-2.example.com")));
+        Assert.assertEquals(domains(search.find("*corp*", 0, 100)).size(), 5);
+        Assert.assertEquals(search.find("missing.*", 0, 100).getTotal(), 0);
+    }
+
+    @Test (description = "Проверка постраничного вывода")
+    public void testPaging() {
+        Set<String> all = new HashSet<>();
+        int offset = 0;
+        PairPage page;
+        do {
+            page = search.find("*", offset, 3);
+            Assert.assertTrue(page.size() <= 3, "Страница не должна превышать лимит");
+            all.addAll(domains(page));
+            offset += page.size();
+        } while (page.hasMore());
+        Assert.assertEquals(all.size(), 7, "Страницы должны покрывать все записи без повторов");
+        Assert.assertEquals(search.find("*.example.com", 2, 2).getTotal(), 6, "Общее число не зависит от страницы");
+    }
+
+    @Test (description = "Проверка сортировки записей по домену")
+    public void testSortedOrder() {
+        for (int n = 1; n < search.size(); n++) {
+            Assert.assertTrue(search.find("*", n - 1, 2).getDomain(0).toLowerCase()
+                    .compareTo(search.find("*", n - 1, 2).getDomain(1).toLowerCase()) <= 0, "Нарушен порядок");
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.example;
+
+import com.jcraft.jsch.JSchException;
+import org.apache.sshd.common.file.virtualfs.VirtualFileSystemFactory;
+import org.apache.sshd.common.session.Session;
+import org.apache.sshd.server.SshServer;
+import org.apache.sshd.server.keyprovider.SimpleGeneratorHostKeyProvider;
+import org.apache.sshd.sftp.server.SftpFileSystemAccessor;
+import org.apache.sshd.sftp.server.SftpSubsystemFactory;
+import org.apache.sshd.sftp.server.SftpSubsystemProxy;
+import org.example.SFTPConnection;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Встроенный SFTP-сервер на localhost для тестов, которым нужен настоящий сервер (пул, наблюдатель, запись)
+public class EmbeddedSftpServer implements AutoCloseable {
+    public static final String USERNAME = "test";
+    public static final String PASSWORD = "test";
+    public static final String FILE_NAME = "addresses.json";
+
+    private final SshServer sshd;
+    private final Path root;
+    // при включении сервер отвечает ошибкой на любой запрос к файлам, не закрывая сессию
+    private volatile boolean failing;
+
+    public EmbeddedSftpServer() throws IOException {
+        root = Files.createTempDirectory("sftp-test");
+        sshd = SshServer.setUpDefaultServer();
+        sshd.setHost("127.0.0.1");
+        sshd.setPort(0);
+        sshd.setKeyPairProvider(new SimpleGeneratorHostKeyProvider());
+        sshd.setPasswordAuthenticator((username, password, session) ->
+                USERNAME.equals(username) && PASSWORD.equals(password));
+        SftpSubsystemFactory sftp = new SftpSubsystemFactory();
+        sftp.setFileSystemAccessor(new SftpFileSystemAccessor() {
+            @Override
+            public Path resolveLocalFilePath(SftpSubsystemProxy subsystem, Path rootDir, String remotePath)
+                    throws IOException {
+                if (failing) {
+                    throw new IOException("Сервер недоступен: " + remotePath);
+                }
+                return SftpFileSystemAccessor.super.resolveLocalFilePath(subsystem, rootDir, remotePath);
+            }
+        });
+        sshd.setSubsystemFactories(Collections.singletonList(sftp));
+        sshd.setFileSystemFactory(new VirtualFileSystemFactory(root));
+        sshd.start();
+    }
+
+    public int getPort() {
+        return sshd.getPort();
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    // Новое подключение к серверу
+    public SFTPConnection connect() throws JSchException {
+        return connect("127.0.0.1");
+    }
+
+    // Подключение по другому имени хоста (например, localhost) получает в SFTPClient собственный кэш,
+    // то есть ведет себя как отдельный клиент
+    public SFTPConnection connect(String host) throws JSchException {
+        SFTPConnection connection = new SFTPConnection();
+        connection.connect(host, getPort(), USERNAME, PASSWORD);
+        return connection;
+    }
+
+    // Запись файла пар в формате addresses.json
+    public void writeAddresses(String... pairs) throws IOException {
+        StringBuilder json = new StringBuilder("{\"addresses\":[");
+        for (int i = 0; i < pairs.length; i += 2) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"domain\":\"").append(pairs[i]).append("\",\"ip\":\"").append(pairs[i + 1]).append("\"}");
+        }
+        json.append("]}");
+        write(FILE_NAME, json.toString());
+    }
+
+    public void write(String fileName, String content) throws IOException {
+        Files.write(root.resolve(fileName), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public String read(String fileName) throws IOException {
+        return new String(Files.readAllBytes(root.resolve(fileName)), StandardCharsets.UTF_8);
+    }
+
+    // Сдвиг mtime, чтобы изменение было видно даже в пределах одной секунды
+    public void touch(String fileName) throws IOException {
+        Path file = root.resolve(fileName);
+        long mtime = Files.getLastModifiedTime(file).toMillis() + 1000;
+        Files.setLastModifiedTime(file, FileTime.fromMillis(mtime));
+    }
+
+    public void setFailing(boolean failing) {
+        this.failing = failing;
+    }
+
+    // Число открытых сессий на стороне сервера
+    public int activeSessions() {
+        return sshd.getActiveSessions().size();
+    }
+
+    // Разрыв всех сессий со стороны сервера (имитация обрыва связи)
+    public void closeSessions() {
+        List<Session> sessions = new ArrayList<>(sshd.getActiveSessions());
+        for (Session session : sessions) {
+            session.close(true);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        sshd.stop(true);
+        try (Stream<Path> files = Files.walk(root)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.example;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.SftpException;
+import org.example.SFTPClient;
+import org.example.SFTPConnection;
+import org.example.SftpMetrics;
+import org.testng.Assert;
+import org.testng.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class FilePathTest {
+
+    private EmbeddedSftpServer server;
+    private SFTPConnection connection;
+    private ChannelSftp channel;
+    private final SftpMetrics metrics = SftpMetrics.get();
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        server = new EmbeddedSftpServer();
+        server.writeAddresses("first.domain", "192.168.0.1", "second.domain", "192.168.0.2");
+        connection = server.connect();
+        channel = connection.getChannelSftp();
+    }
+
+    @AfterMethod
+    public void tearDown() throws IOException {
+        SFTPClient.setJsonFilePath(null);
+        connection.disconnect();
+        server.close();
+    }
+
+    private long lists() {
+        return metrics.histogram(SftpMetrics.Phase.LIST).getCount();
+    }
+
+    @Test (description = "Проверка, что найденный путь к файлу запоминается и каталог не просматривается повторно")
+    public void testPathCached() throws Exception {
+        long before = lists();
+        Assert.assertEquals(SFTPClient.getIPByDomain(channel, "first.domain"), "192.168.0.1", "Первая загрузка файла");
+        Assert.assertEquals(lists(), before + 1, "Файл должен находиться одним запросом списка каталога");
+
+        server.writeAddresses("first.domain", "10.0.0.1");
+        server.touch(EmbeddedSftpServer.FILE_NAME);
+        Assert.assertEquals(SFTPClient.getIPByDomain(channel, "first.domain"), "10.0.0.1",
+                "Изменение файла должно обнаруживаться по сохраненному пути");
+        Assert.assertEquals(SFTPClient.getIPByDomain(channel, "first.domain"), "10.0.0.1", "Повторный поиск");
+        Assert.assertEquals(lists(), before + 1, "Пока файл на месте, список каталога не должен запрашиваться");
+    }
+
+    @Test (description = "Проверка повторного поиска файла после его переименования")
+    public void testPathResolvedAgainAfterRename() throws Exception {
+        Assert.assertEquals(SFTPClient.getIPByDomain(channel, "first.domain"), "192.168.0.1", "Первая загрузка файла");
+
+        Path root = server.getRoot();
+        Files.move(root.resolve(EmbeddedSftpServer.FILE_NAME), root.resolve("renamed.json"));
+        Assert.assertEquals(SFTPClient.getIPByDomain(channel, "second.domain"), "192.168.0.2",
+                "Переименованный файл должен находиться заново");
+
+        SFTPClient.addPair(channel, "third.domain", "192.168.0.3");
+        Assert.assertTrue(server.read("renamed.json").contains("third.domain"),
+                "Изменения должны записываться в переименованный файл");
+        Assert.assertFalse(Files.exists(root.resolve(EmbeddedSftpServer.FILE_NAME)),
+                "Файл со старым именем не должен создаваться заново");
+    }
+
+    @Test (description = "Проверка явно заданного пути к json-файлу")
+    public void testExplicitPath() throws Exception {
+        Files.createDirectory(server.getRoot().resolve("data"));
+        server.write("data/custom.json", "{\"addresses\":[{\"domain\":\"custom.domain\",\"ip\":\"10.0.0.9\"}]}");
+        SFTPClient.setJsonFilePath("data/custom.json");
+        Assert.assertEquals(SFTPClient.getIPByDomain(channel, "custom.domain"), "10.0.0.9",
+                "Пара должна читаться из заданного файла");
+        Assert.assertNotEquals(SFTPClient.getIPByDomain(channel, "first.domain"), "192.168.0.1",
+                "Файл в текущем каталоге не должен использоваться при заданном пути");
+
+        Files.delete(server.getRoot().resolve("data/custom.json"));
+        try {
+            SFTPClient.addPair(channel, "other.domain", "10.0.0.10");
+            Assert.fail("Изменение отсутствующего заданного файла должно завершаться ошибкой");
+        } catch (SftpException e) {
+            Assert.assertTrue(e.getMessage().contains("data/custom.json"), "Ошибка должна называть заданный путь: " + e.getMessage());
+        }
+    }
+}
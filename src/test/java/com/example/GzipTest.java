@@ -0,0 +1,95 @@
+package com.example;
+
+import com.jcraft.jsch.ChannelSftp;
+import org.example.SFTPClient;
+import org.example.SFTPConnection;
+import org.testng.Assert;
+import org.testng.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+public class GzipTest {
+
+    private static final String GZ_FILE_NAME = EmbeddedSftpServer.FILE_NAME + ".gz";
+
+    private EmbeddedSftpServer server;
+    private SFTPConnection connection;
+    private ChannelSftp channel;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        server = new EmbeddedSftpServer();
+        writeCompressed("{\"addresses\":[{\"domain\":\"first.domain\",\"ip\":\"192.168.0.1\"},"
+                + "{\"domain\":\"second.domain\",\"ip\":\"192.168.0.2\"}]}");
+        connection = server.connect();
+        channel = connection.getChannelSftp();
+    }
+
+    @AfterMethod
+    public void tearDown() throws IOException {
+        SFTPClient.setPreferCompressed(false);
+        connection.disconnect();
+        server.close();
+    }
+
+    private void writeCompressed(String content) throws IOException {
+        try (OutputStream outputStream = new GZIPOutputStream(Files.newOutputStream(server.getRoot().resolve(GZ_FILE_NAME)))) {
+            outputStream.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private String readCompressed() throws IOException {
+        byte[] content = Files.readAllBytes(server.getRoot().resolve(GZ_FILE_NAME));
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (InputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(content))) {
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = inputStream.read(buffer)) > 0) {
+                result.write(buffer, 0, read);
+            }
+        }
+        return new String(result.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test (description = "Проверка поиска в сжатом файле addresses.json.gz")
+    public void testReadCompressed() throws Exception {
+        Assert.assertEquals(SFTPClient.getIPByDomain(channel, "first.domain"), "192.168.0.1",
+                "IP должен находиться в сжатом файле");
+        Assert.assertEquals(SFTPClient.getDomainByIP(channel, "192.168.0.2"), "second.domain",
+                "Domain должен находиться в сжатом файле");
+    }
+
+    @Test (description = "Проверка записи изменений в сжатый файл")
+    public void testWriteCompressed() throws Exception {
+        SFTPClient.addPair(channel, "third.domain", "192.168.0.3");
+        SFTPClient.deletePair(channel, "first.domain");
+
+        Assert.assertFalse(Files.exists(server.getRoot().resolve(EmbeddedSftpServer.FILE_NAME)),
+                "Рядом со сжатым файлом не должен появиться обычный");
+        String content = readCompressed();
+        Assert.assertTrue(content.contains("\"third.domain\""), "Добавленная пара должна быть в сжатом файле");
+        Assert.assertFalse(content.contains("\"first.domain\""), "Удаленной пары не должно быть в сжатом файле");
+        Assert.assertTrue(content.contains("\"second.domain\""), "Остальные пары должны сохраниться");
+        Assert.assertEquals(SFTPClient.getIPByDomain(channel, "third.domain"), "192.168.0.3",
+                "Добавленная пара должна находиться после записи");
+    }
+
+    @Test (description = "Проверка выбора сжатого или обычного файла, если на сервере есть оба")
+    public void testPreferCompressed() throws Exception {
+        server.writeAddresses("first.domain", "10.0.0.1");
+        Assert.assertEquals(SFTPClient.getIPByDomain(channel, "first.domain"), "10.0.0.1",
+                "По умолчанию должен использоваться обычный файл");
+
+        SFTPClient.setPreferCompressed(true);
+        Assert.assertEquals(SFTPClient.getIPByDomain(channel, "first.domain"), "192.168.0.1",
+                "При sftp.gzip должен использоваться сжатый файл");
+    }
+}
@@ -0,0 +1,70 @@
+package com.example;
+
+import org.example.DomainIPIndex;
+import org.example.IPRangeIndex;
+import org.example.PairPage;
+import org.testng.Assert;
+import org.testng.annotations.*;
+
+import java.util.*;
+
+public class IPRangeIndexTest {
+
+    private IPRangeIndex ranges;
+
+    @BeforeClass
+    public void setUp() {
+        DomainIPIndex.Builder builder = new DomainIPIndex.Builder();
+        builder.add("a.com", "10.20.0.1");
+        builder.add("b.com", "10.20.255.255");
+        builder.add("c.com", "10.21.0.0");
+        builder.add("d.com", "192.168.0.1");
+        builder.add("e.com", "255.255.255.255");
+        builder.add("f.com", "0.0.0.0");
+        builder.add("g.com", "10.19.255.255");
+        ranges = builder.build().getRangeIndex();
+    }
+
+    private static List<String> domains(PairPage page) {
+        List<String> result = new ArrayList<>();
+        for (int n = 0; n < page.size(); n++) {
+            result.add(page.getDomain(n));
+        }
+        return result;
+    }
+
+    @Test (description = "Проверка поиска по подсети CIDR")
+    public void testCidr() {
+        Assert.assertEquals(domains(ranges.findCidr("10.20.0.0/16", 0, 100)), Arrays.asList("a.com", "b.com"));
+        Assert.assertEquals(domains(ranges.findCidr("10.20.7.7/16", 0, 100)), Arrays.asList("a.com", "b.com"),
+                "Биты адреса хоста должны игнорироваться");
+        Assert.assertEquals(ranges.findCidr("0.0.0.0/0", 0, 100).getTotal(), 7, "Подсеть /0 содержит все адреса");
+        Assert.assertEquals(domains(ranges.findCidr("192.168.000.001/32", 0, 100)), Collections.singletonList("d.com"));
+    }
+
+    @Test (description = "Проверка диапазона с адресами выше 127.255.255.255 (сравнение без знака)")
+    public void testUnsignedRange() {
+        Assert.assertEquals(domains(ranges.findRange("10.20.0.0", "255.255.255.255", 0, 100)),
+                Arrays.asList("a.com", "b.com", "c.com", "d.com", "e.com"));
+        Assert.assertEquals(ranges.findRange("192.168.0.2", "192.168.0.1", 0, 100).getTotal(), 0,
+                "Обратный диапазон пуст");
+    }
+
+    @Test (description = "Проверка постраничного вывода диапазона")
+    public void testPaging() {
+        PairPage page = ranges.findRange("0.0.0.0", "255.255.255.255", 5, 5);
+        Assert.assertEquals(domains(page), Arrays.asList("d.com", "e.com"));
+        Assert.assertEquals(page.getTotal(), 7);
+        Assert.assertFalse(page.hasMore());
+    }
+
+    @Test (description = "Проверка неверного CIDR", expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidCidr() {
+        ranges.findCidr("10.20.0.0/33", 0, 10);
+    }
+
+    @Test (description = "Проверка невалидного IP в диапазоне", expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidRange() {
+        ranges.findRange("10.0.0.256", "10.0.1.0", 0, 10);
+    }
+}
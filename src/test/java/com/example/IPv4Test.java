@@ -0,0 +1,48 @@
+package com.example;
+
+import org.example.IPv4;
+import org.testng.Assert;
+import org.testng.annotations.*;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+public class IPv4Test {
+
+    // прежнее регулярное выражение из SFTPClient.isValidIP
+    private static final Pattern LEGACY = Pattern.compile("^(25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)\\." +
+            "(25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)\\." +
+            "(25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)\\." +
+            "(25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)$");
+
+    @Test (description = "Проверка совпадения правил с прежним регулярным выражением")
+    public void testMatchesLegacyRules() {
+        String[] octets = {"", "0", "00", "000", "1", "01", "001", "9", "99", "099", "199", "200", "249",
+                "250", "255", "256", "260", "300", "999", "0000", "-1", "+1", "1a", " 1"};
+        for (String a : octets) {
+            for (String b : octets) {
+                String ip = a + "." + b + ".1." + a;
+                Assert.assertEquals(IPv4.isValid(ip), LEGACY.matcher(ip).matches(), ip);
+            }
+        }
+        Random random = new Random(42);
+        String alphabet = "0123456789.";
+        for (int n = 0; n < 100000; n++) {
+            StringBuilder ip = new StringBuilder();
+            int length = random.nextInt(17);
+            for (int i = 0; i < length; i++) {
+                ip.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            Assert.assertEquals(IPv4.isValid(ip), LEGACY.matcher(ip).matches(), ip.toString());
+        }
+    }
+
+    @Test (description = "Проверка упаковки и нормализации")
+    public void testParseAndNormalize() {
+        Assert.assertEquals(IPv4.parse("192.168.000.001"), 0xC0A80001L);
+        Assert.assertEquals(IPv4.parse("255.255.255.255"), 0xFFFFFFFFL);
+        Assert.assertEquals(IPv4.parse("192.168.0.256"), IPv4.INVALID);
+        Assert.assertEquals(IPv4.normalize("010.000.000.001"), "10.0.0.1");
+        Assert.assertEquals(IPv4.format((int) IPv4.parse("255.0.10.1")), "255.0.10.1");
+    }
+}
@@ -0,0 +1,78 @@
+package com.example;
+
+import org.example.DomainIPIndex;
+import org.example.IndexSnapshot;
+import org.testng.Assert;
+import org.testng.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class IndexSnapshotTest {
+
+    private Path directory;
+    private DomainIPIndex index;
+    private IndexSnapshot snapshot;
+
+    @BeforeClass
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("snapshot-test");
+        DomainIPIndex.Builder builder = new DomainIPIndex.Builder();
+        builder.add("first.domain", "192.168.0.1");
+        builder.add("второй.домен", "192.168.0.2");
+        builder.add("FIRST.domain", "10.0.0.1");
+        for (int i = 0; i < 1000; i++) {
+            builder.add("host-" + i + ".example.com", "10.1." + (i / 256) + "." + (i % 256));
+        }
+        index = builder.build();
+        Path path = directory.resolve("addresses.idx");
+        IndexSnapshot.write(path, "addresses.json", 1700000000, 12345, index);
+        snapshot = IndexSnapshot.open(path);
+    }
+
+    @AfterClass
+    public void tearDown() throws IOException {
+        snapshot = null;
+        try (java.util.stream.Stream<Path> files = Files.list(directory)) {
+            files.forEach(p -> p.toFile().delete());
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    @Test (description = "Проверка совпадения поиска по снимку и по индексу")
+    public void testLookupsMatchIndex() {
+        Assert.assertEquals(snapshot.size(), index.size(), "Размер снимка должен совпадать с индексом");
+        for (int i = 0; i < index.size(); i++) {
+            Assert.assertEquals(snapshot.getIP(index.domainAt(i)), index.getIP(index.domainAt(i)), "IP для " + index.domainAt(i));
+            Assert.assertEquals(snapshot.getDomain(index.ipStringAt(i)), index.getDomain(index.ipStringAt(i)), "Domain для " + index.ipStringAt(i));
+        }
+    }
+
+    @Test (description = "Проверка поиска без учета регистра, с нормализацией IP и не-ASCII доменом")
+    public void testNormalizedLookups() {
+        Assert.assertEquals(snapshot.getIP("First.Domain"), "192.168.0.1", "Должна использоваться первая запись");
+        Assert.assertEquals(snapshot.getIP("ВТОРОЙ.ДОМЕН"), "192.168.0.2", "Регистр не должен влиять на поиск");
+        Assert.assertEquals(snapshot.getDomain("192.168.000.002"), "второй.домен", "Запрос должен нормализоваться");
+        Assert.assertNull(snapshot.getIP("nonexistent.domain"), "Несуществующий домен не должен находиться");
+        Assert.assertNull(snapshot.getDomain("256.0.0.1"), "Невалидный IP не должен находиться");
+    }
+
+    @Test (description = "Проверка восстановления индекса из снимка")
+    public void testToIndex() {
+        DomainIPIndex restored = snapshot.toIndex();
+        Assert.assertEquals(restored.size(), index.size(), "Размер должен совпадать");
+        for (int i = 0; i < index.size(); i++) {
+            Assert.assertEquals(restored.domainAt(i), index.domainAt(i), "Порядок записей должен сохраняться");
+            Assert.assertEquals(restored.ipAt(i), index.ipAt(i), "Порядок записей должен сохраняться");
+        }
+        Assert.assertEquals(snapshot.getFileName(), "addresses.json", "Имя файла на сервере должно сохраняться");
+    }
+
+    @Test (description = "Проверка отказа при поврежденном снимке", expectedExceptions = IOException.class)
+    public void testCorruptedSnapshot() throws IOException {
+        Path path = directory.resolve("broken.idx");
+        Files.write(path, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9});
+        IndexSnapshot.open(path);
+    }
+}
@@ -0,0 +1,62 @@
+package com.example;
+
+import org.example.LatencyHistogram;
+import org.testng.Assert;
+import org.testng.annotations.*;
+
+public class LatencyHistogramTest {
+
+    @Test (description = "Проверка пустой гистограммы")
+    public void testEmpty() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Assert.assertEquals(histogram.getCount(), 0, "В пустой гистограмме не должно быть значений");
+        Assert.assertEquals(histogram.getPercentile(99), 0, "Перцентиль пустой гистограммы должен быть 0");
+        Assert.assertEquals(histogram.getMean(), 0.0, "Среднее пустой гистограммы должно быть 0");
+    }
+
+    @Test (description = "Проверка точного учета малых значений")
+    public void testSmallValuesExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 7; i++) {
+            histogram.record(i);
+        }
+        Assert.assertEquals(histogram.getCount(), 7, "Должны быть учтены все значения");
+        Assert.assertEquals(histogram.getPercentile(50), 4, "Медиана значений 1..7 должна быть 4");
+        Assert.assertEquals(histogram.getPercentile(100), 7, "100-й перцентиль должен совпадать с максимумом");
+        Assert.assertEquals(histogram.getMax(), 7, "Максимум должен быть 7");
+        Assert.assertEquals(histogram.getMean(), 4.0, "Среднее значений 1..7 должно быть 4");
+    }
+
+    @Test (description = "Проверка относительной погрешности перцентилей")
+    public void testPercentilesWithinRelativeError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 100_000; i++) {
+            histogram.record(i * 1000);
+        }
+        long p50 = histogram.getPercentile(50);
+        long p99 = histogram.getPercentile(99);
+        Assert.assertTrue(Math.abs(p50 - 50_000_000L) <= 50_000_000L / 8, "Погрешность p50 больше 1/8: " + p50);
+        Assert.assertTrue(Math.abs(p99 - 99_000_000L) <= 99_000_000L / 8, "Погрешность p99 больше 1/8: " + p99);
+        Assert.assertEquals(histogram.getMax(), 100_000_000L, "Максимум должен учитываться точно");
+    }
+
+    @Test (description = "Проверка очень больших и отрицательных значений")
+    public void testLargeAndNegativeValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+        Assert.assertEquals(histogram.getCount(), 2, "Должны быть учтены оба значения");
+        Assert.assertEquals(histogram.getPercentile(1), 0, "Отрицательное значение должно учитываться как 0");
+        Assert.assertEquals(histogram.getMax(), Long.MAX_VALUE, "Максимальное значение long не должно теряться");
+    }
+
+    @Test (description = "Проверка сброса гистограммы")
+    public void testReset() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1_000_000);
+        histogram.reset();
+        Assert.assertEquals(histogram.getCount(), 0, "После сброса значений быть не должно");
+        Assert.assertEquals(histogram.getMax(), 0, "После сброса максимум должен быть 0");
+        Assert.assertEquals(histogram.getPercentile(50), 0, "После сброса перцентиль должен быть 0");
+    }
+}
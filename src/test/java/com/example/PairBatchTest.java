@@ -0,0 +1,97 @@
+package com.example;
+
+import org.example.*;
+import org.testng.Assert;
+import org.testng.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class PairBatchTest {
+
+    private EmbeddedSftpServer server;
+    private SFTPConnection connection;
+    private Path directory;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        server = new EmbeddedSftpServer();
+        server.writeAddresses("first.domain", "192.168.0.1", "second.domain", "192.168.0.2");
+        connection = server.connect();
+        directory = Files.createTempDirectory("batch-test");
+    }
+
+    @AfterMethod
+    public void tearDown() throws IOException {
+        connection.disconnect();
+        server.close();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(path -> path.toFile().delete());
+        }
+        Files.delete(directory);
+    }
+
+    private String writeLocal(String fileName, String content) throws IOException {
+        return Files.write(directory.resolve(fileName), content.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    @Test (description = "Проверка чтения CSV-файла изменений")
+    public void testReadCsv() throws Exception {
+        String path = writeLocal("changes.csv", "# комментарий\n"
+                + "add, third.domain, 192.168.0.3\n"
+                + "\n"
+                + "DELETE,first.domain\n"
+                + "fourth.domain,192.168.0.4\n");
+        List<PairChange> changes = PairChange.readFile(path);
+        Assert.assertEquals(changes.size(), 3, "Пустые строки и комментарии должны пропускаться");
+        Assert.assertEquals(changes.get(0).getType(), PairChange.Type.ADD, "Строка add должна быть добавлением");
+        Assert.assertEquals(changes.get(0).getDomain(), "third.domain", "Поля должны очищаться от пробелов");
+        Assert.assertEquals(changes.get(0).getIp(), "192.168.0.3", "IP добавляемой пары");
+        Assert.assertEquals(changes.get(1).getType(), PairChange.Type.DELETE, "Команда delete не зависит от регистра");
+        Assert.assertEquals(changes.get(1).getData(), "first.domain", "Удаление по domain");
+        Assert.assertEquals(changes.get(2).getType(), PairChange.Type.ADD, "Строка domain,ip должна быть добавлением");
+    }
+
+    @Test (description = "Проверка ошибки при неверной строке CSV-файла",
+            expectedExceptions = IOException.class, expectedExceptionsMessageRegExp = ".*строки 2.*")
+    public void testReadCsvInvalidLine() throws Exception {
+        PairChange.readFile(writeLocal("changes.csv", "add,third.domain,192.168.0.3\nupdate,third.domain,192.168.0.4\n"));
+    }
+
+    @Test (description = "Проверка чтения JSON-файла изменений с расширением в любом регистре")
+    public void testReadJson() throws Exception {
+        String path = writeLocal("IMPORT.JSON", "{\"addresses\":[{\"domain\":\"third.domain\",\"ip\":\"192.168.0.3\"},"
+                + "{\"domain\":\"fourth.domain\",\"ip\":\"192.168.0.4\"}]}");
+        List<PairChange> changes = PairChange.readFile(path);
+        Assert.assertEquals(changes.size(), 2, "Все пары JSON-файла должны быть прочитаны");
+        for (PairChange change : changes) {
+            Assert.assertEquals(change.getType(), PairChange.Type.ADD, "Пары JSON-файла добавляются: " + change);
+        }
+        Assert.assertEquals(changes.get(1).getDomain(), "fourth.domain", "Порядок пар должен сохраняться");
+    }
+
+    @Test (description = "Проверка применения импортированного файла на сервере")
+    public void testApplyImportedFile() throws Exception {
+        String path = writeLocal("changes.csv", "third.domain,192.168.0.3\n"
+                + "delete,192.168.0.1\n"
+                + "second.domain,10.0.0.2\n"
+                + "bad.domain,300.0.0.1\n"
+                + "delete,missing.domain\n");
+        List<BatchResult> results = SFTPClient.applyBatch(connection.getChannelSftp(), PairChange.readFile(path));
+        Assert.assertEquals(results.size(), 5, "Для каждой строки должен быть результат");
+        Assert.assertEquals(results.get(0).getOutcome(), BatchResult.Outcome.ADDED, "Новая пара должна добавляться");
+        Assert.assertEquals(results.get(1).getOutcome(), BatchResult.Outcome.DELETED, "Пара должна удаляться по IP");
+        Assert.assertEquals(results.get(2).getOutcome(), BatchResult.Outcome.DUPLICATE, "Дубликат domain не добавляется");
+        Assert.assertEquals(results.get(3).getOutcome(), BatchResult.Outcome.INVALID_IP, "Невалидный IP не добавляется");
+        Assert.assertEquals(results.get(4).getOutcome(), BatchResult.Outcome.NOT_FOUND, "Отсутствующая пара не удаляется");
+
+        String content = server.read(EmbeddedSftpServer.FILE_NAME);
+        Assert.assertTrue(content.contains("third.domain"), "Добавленная пара должна быть записана на сервер");
+        Assert.assertFalse(content.contains("first.domain"), "Удаленная пара не должна остаться на сервере");
+        Assert.assertFalse(content.contains("10.0.0.2"), "Отклоненное изменение не должно попасть на сервер");
+    }
+}
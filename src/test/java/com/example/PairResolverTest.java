@@ -0,0 +1,127 @@
+package com.example;
+
+import com.jcraft.jsch.ChannelSftp;
+import org.example.*;
+import org.testng.Assert;
+import org.testng.annotations.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class PairResolverTest {
+
+    private EmbeddedSftpServer server;
+    private SFTPConnectionPool pool;
+    private PairResolver resolver;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        server = new EmbeddedSftpServer();
+        server.writeAddresses("first.domain", "192.168.0.1", "second.domain", "192.168.0.2");
+        pool = new SFTPConnectionPool(server::connect, 0, 1, 2, 60_000, 10_000);
+        resolver = new PairResolver(pool, 4);
+    }
+
+    @AfterMethod
+    public void tearDown() throws IOException {
+        SFTPClient.setCacheTtl(0);
+        resolver.close();
+        pool.close();
+        server.close();
+    }
+
+    @Test (description = "Проверка поиска и изменения пар через сервис")
+    public void testLookupAndChange() throws Exception {
+        Assert.assertEquals(resolver.getIP("FIRST.domain"), "192.168.0.1", "IP должен находиться без учета регистра домена");
+        Assert.assertEquals(resolver.getDomain("192.168.000.002"), "second.domain", "Domain должен находиться по нормализованному IP");
+        Assert.assertNull(resolver.getIP("nonexistent.domain"), "Для несуществующего домена должен возвращаться null");
+
+        Assert.assertTrue(resolver.addPair("third.domain", "192.168.0.3").isApplied(), "Новая пара должна быть добавлена");
+        Assert.assertFalse(resolver.addPair("THIRD.domain", "10.0.0.1").isApplied(), "Дубликат домена не должен добавляться");
+        Assert.assertEquals(resolver.getIP("third.domain"), "192.168.0.3", "Добавленная пара должна находиться сразу");
+
+        Assert.assertTrue(resolver.deletePair("192.168.0.1").isApplied(), "Пара должна удаляться по IP");
+        Assert.assertNull(resolver.getIP("first.domain"), "Удаленная пара не должна находиться");
+        Assert.assertTrue(server.read(EmbeddedSftpServer.FILE_NAME).contains("third.domain"), "Изменения должны быть записаны на сервер");
+    }
+
+    @Test (description = "Проверка асинхронного поиска")
+    public void testAsyncLookup() throws Exception {
+        CompletableFuture<String> ip = resolver.getIPAsync("second.domain");
+        CompletableFuture<String> domain = resolver.getDomainAsync("192.168.0.1");
+        Assert.assertEquals(ip.get(10, TimeUnit.SECONDS), "192.168.0.2", "IP должен соответствовать домену second.domain");
+        Assert.assertEquals(domain.get(10, TimeUnit.SECONDS), "first.domain", "Domain должен соответствовать IP 192.168.0.1");
+    }
+
+    @Test (description = "Проверка объединения одновременных запросов в одну загрузку файла")
+    public void testConcurrentRequestsShareOneLoad() throws Exception {
+        // единственный канал пула занят — загрузка не может завершиться, пока он не возвращен
+        ChannelSftp busy = pool.borrow();
+        List<CompletableFuture<DomainIPIndex>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(resolver.getIndexAsync());
+        }
+        for (CompletableFuture<DomainIPIndex> future : futures) {
+            Assert.assertSame(future, futures.get(0), "Одновременные запросы должны ждать одну общую загрузку");
+        }
+        Assert.assertFalse(futures.get(0).isDone(), "Загрузка не должна завершиться без свободного канала");
+
+        pool.release(busy);
+        DomainIPIndex index = futures.get(0).get(10, TimeUnit.SECONDS);
+        Assert.assertEquals(index.size(), 2, "Загруженный индекс должен содержать все пары");
+        Assert.assertNotSame(resolver.getIndexAsync(), futures.get(0), "После завершения загрузки запрос не должен получать старую загрузку");
+    }
+
+    @Test (description = "Проверка поиска при одновременном сбросе кэша")
+    public void testLookupWhileCacheInvalidated() throws Exception {
+        SFTPClient.setCacheTtl(60_000);
+        Assert.assertEquals(resolver.getIP("first.domain"), "192.168.0.1", "IP должен соответствовать домену first.domain");
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread invalidator = new Thread(() -> {
+            while (running.get()) {
+                // сброс всех кэшей: индекс становится null в любой момент между проверками
+                SFTPClient.setJsonFilePath(null);
+            }
+        });
+        invalidator.start();
+        try {
+            // запросы из свежего кэша завершаются сразу, остальные ждут общую загрузку
+            long deadline = System.currentTimeMillis() + 2_000;
+            int completed = 0;
+            while (System.currentTimeMillis() < deadline) {
+                CompletableFuture<DomainIPIndex> future = resolver.getIndexAsync();
+                if (future.isDone()) {
+                    Assert.assertNotNull(future.get(), "Запрос из кэша не должен возвращать пустой индекс");
+                    completed++;
+                } else {
+                    future.get(10, TimeUnit.SECONDS);
+                }
+            }
+            Assert.assertTrue(completed > 0, "Часть запросов должна обслуживаться из кэша");
+        } finally {
+            running.set(false);
+            invalidator.join();
+        }
+    }
+
+    @Test (description = "Проверка выбора исполнителя: виртуальные потоки на Java 21+, иначе фиксированный пул")
+    public void testExecutorFallback() throws Exception {
+        String version = System.getProperty("java.specification.version");
+        int feature = Integer.parseInt(version.startsWith("1.") ? version.substring(2) : version);
+        Assert.assertEquals(resolver.usesVirtualThreads(), feature >= 21, "Исполнитель должен соответствовать версии Java " + version);
+
+        // ограничение одновременных задач: пакеты изменений выполняются и при одном потоке
+        try (PairResolver single = new PairResolver(pool, 1)) {
+            List<CompletableFuture<BatchResult>> results = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                results.add(single.addPairAsync("host-" + i + ".example.com", "10.0.0." + i));
+            }
+            for (CompletableFuture<BatchResult> result : results) {
+                Assert.assertTrue(result.get(30, TimeUnit.SECONDS).isApplied(), "Все пары должны быть добавлены");
+            }
+        }
+    }
+}
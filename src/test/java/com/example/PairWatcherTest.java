@@ -0,0 +1,108 @@
+package com.example;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.SftpException;
+import org.example.DomainIPIndex;
+import org.example.PairWatcher;
+import org.example.SFTPClient;
+import org.example.SFTPConnection;
+import org.testng.Assert;
+import org.testng.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class PairWatcherTest {
+
+    private EmbeddedSftpServer server;
+    private SFTPConnection connection;
+    private PairWatcher watcher;
+    private final BlockingQueue<DomainIPIndex> changes = new LinkedBlockingQueue<>();
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        server = new EmbeddedSftpServer();
+        server.writeAddresses("first.domain", "192.168.0.1", "second.domain", "192.168.0.2");
+        connection = server.connect();
+        watcher = new PairWatcher(connection, 100);
+        changes.clear();
+        watcher.addListener((previous, current) -> changes.add(current));
+        watcher.start();
+    }
+
+    @AfterMethod
+    public void tearDown() throws IOException {
+        watcher.close();
+        connection.disconnect();
+        server.close();
+    }
+
+    @Test (description = "Проверка первой загрузки индекса при запуске наблюдателя")
+    public void testStartLoadsIndex() {
+        Assert.assertNotNull(watcher.getIndex(), "После start() индекс должен быть загружен");
+        Assert.assertEquals(watcher.getIP("first.domain"), "192.168.0.1", "IP должен соответствовать домену first.domain");
+        Assert.assertEquals(watcher.getDomain("192.168.0.2"), "second.domain", "Domain должен соответствовать IP 192.168.0.2");
+        Assert.assertEquals(changes.poll().size(), 2, "Первая загрузка должна передаваться обработчику");
+    }
+
+    @Test (description = "Проверка уведомления обработчика после изменения файла другим клиентом")
+    public void testListenerFiresOnExternalChange() throws Exception {
+        changes.clear();
+        server.writeAddresses("first.domain", "192.168.0.1", "third.domain", "192.168.0.3");
+        server.touch(EmbeddedSftpServer.FILE_NAME);
+
+        DomainIPIndex current = changes.poll(5, TimeUnit.SECONDS);
+        Assert.assertNotNull(current, "Обработчик должен быть вызван после изменения файла");
+        Assert.assertEquals(current.getIP("third.domain"), "192.168.0.3", "Новый индекс должен содержать добавленную пару");
+        Assert.assertNull(current.getIP("second.domain"), "Новый индекс не должен содержать удаленную пару");
+        Assert.assertSame(watcher.getIndex(), current, "Наблюдатель должен отдавать новый индекс");
+    }
+
+    @Test (description = "Проверка уведомления обработчика после изменения через SFTPClient в этом процессе")
+    public void testListenerFiresOnLocalChange() throws Exception {
+        changes.clear();
+        SFTPClient.addPair(connection.getChannelSftp(), "third.domain", "192.168.0.3");
+
+        DomainIPIndex current = changes.poll(5, TimeUnit.SECONDS);
+        Assert.assertNotNull(current, "Обработчик должен быть вызван после изменения файла");
+        Assert.assertEquals(watcher.getIP("third.domain"), "192.168.0.3", "Наблюдатель должен видеть добавленную пару");
+    }
+
+    // Ожидание результата очередной проверки наблюдателя
+    private void awaitPoll(boolean failed) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while ((watcher.getLastError() != null) != failed && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        Assert.assertEquals(watcher.getLastError() != null, failed, "Ошибка проверки должна " + (failed ? "" : "не ") + "сохраняться");
+    }
+
+    @Test (description = "Проверка, что после ошибки проверки поиск не использует кэш без обращения к серверу")
+    public void testFailedPollStopsConfirmingCache() throws Exception {
+        ChannelSftp channel = connection.getChannelSftp();
+        Assert.assertEquals(SFTPClient.getIPByDomain(channel, "first.domain"), "192.168.0.1",
+                "Пока наблюдатель работает, поиск использует его кэш");
+
+        server.setFailing(true);
+        awaitPoll(true);
+        try {
+            SFTPClient.getIPByDomain(channel, "first.domain");
+            Assert.fail("После ошибки наблюдателя поиск должен проверять файл на сервере");
+        } catch (SftpException expected) {
+            // сервер недоступен — ошибка передается вызывающему, а не скрывается устаревшим кэшем
+        }
+
+        server.setFailing(false);
+        awaitPoll(false);
+        Assert.assertEquals(SFTPClient.getIPByDomain(channel, "first.domain"), "192.168.0.1",
+                "После успешной проверки наблюдатель снова подтверждает кэш");
+    }
+
+    @Test (description = "Проверка отсутствия уведомлений, пока файл не меняется")
+    public void testNoChangeNoNotification() throws Exception {
+        changes.clear();
+        Assert.assertNull(changes.poll(500, TimeUnit.MILLISECONDS), "Без изменения файла обработчик не должен вызываться");
+    }
+}
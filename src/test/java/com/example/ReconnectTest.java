@@ -0,0 +1,88 @@
+package com.example;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSchException;
+import org.example.SFTPConnection;
+import org.testng.Assert;
+import org.testng.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+
+public class ReconnectTest {
+
+    private EmbeddedSftpServer server;
+    private SFTPConnection connection;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        server = new EmbeddedSftpServer();
+        server.writeAddresses("first.domain", "192.168.0.1");
+        Files.createDirectory(server.getRoot().resolve("data"));
+        server.write("data/" + EmbeddedSftpServer.FILE_NAME, "{\"addresses\":[]}");
+        connection = server.connect();
+        connection.setReconnect(3, 100);
+    }
+
+    @AfterMethod
+    public void tearDown() throws IOException {
+        connection.disconnect();
+        server.close();
+    }
+
+    // Ожидание, пока клиент заметит разрыв сессии сервером
+    private void awaitDisconnected() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (connection.isConnected() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        Assert.assertFalse(connection.isConnected(), "Клиент должен обнаружить разрыв сессии");
+    }
+
+    @Test (description = "Проверка переподключения после разрыва сессии сервером с сохранением рабочего каталога")
+    public void testReconnectAfterSessionClosed() throws Exception {
+        connection.getChannelSftp().cd("data");
+        String directory = connection.getChannelSftp().pwd();
+
+        server.closeSessions();
+        awaitDisconnected();
+
+        ChannelSftp channel = connection.ensureConnected();
+        Assert.assertTrue(connection.isConnected(), "Сессия должна быть восстановлена");
+        Assert.assertEquals(channel.pwd(), directory, "Рабочий каталог канала должен сохраниться");
+        Assert.assertNotNull(channel.stat(EmbeddedSftpServer.FILE_NAME), "Канал после переподключения должен работать");
+        Assert.assertEquals(server.activeSessions(), 1, "После переподключения должна быть одна сессия");
+    }
+
+    @Test (description = "Проверка открытия нового канала в той же сессии при закрытии только канала")
+    public void testReopenChannelInSameSession() throws Exception {
+        ChannelSftp old = connection.getChannelSftp();
+        old.disconnect();
+
+        ChannelSftp channel = connection.ensureConnected();
+        Assert.assertNotSame(channel, old, "Вместо закрытого канала должен открываться новый");
+        Assert.assertTrue(channel.isConnected(), "Новый канал должен быть подключен");
+        Assert.assertEquals(server.activeSessions(), 1, "Сессия должна использоваться прежняя");
+        Assert.assertSame(connection.ensureConnected(), channel, "Рабочий канал не должен заменяться без обрыва");
+    }
+
+    @Test (description = "Проверка ограниченного числа попыток с растущей паузой, если сервер недоступен")
+    public void testBackoffGivesUp() throws Exception {
+        EmbeddedSftpServer stopped = new EmbeddedSftpServer();
+        SFTPConnection lost = stopped.connect();
+        lost.setReconnect(3, 100);
+        stopped.close();
+        long start = System.currentTimeMillis();
+        try {
+            lost.ensureConnected();
+            Assert.fail("Переподключение к остановленному серверу должно завершаться ошибкой");
+        } catch (JSchException expected) {
+            long elapsed = System.currentTimeMillis() - start;
+            // три попытки с паузами 100 и 200 мс между ними
+            Assert.assertTrue(elapsed >= 300, "Между попытками должны быть растущие паузы: " + elapsed + " мс");
+            Assert.assertFalse(lost.isConnected(), "Соединение не должно считаться установленным");
+        } finally {
+            lost.disconnect();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.example;
+
+import com.jcraft.jsch.ChannelSftp;
+import org.example.*;
+import org.testng.Assert;
+import org.testng.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class ReshardTest {
+
+    private static final int PAIRS = 20;
+
+    private EmbeddedSftpServer server;
+    private SFTPConnection connection;
+    private ChannelSftp channel;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        server = new EmbeddedSftpServer();
+        String[] pairs = new String[2 * PAIRS];
+        for (int i = 0; i < PAIRS; i++) {
+            pairs[2 * i] = domain(i);
+            pairs[2 * i + 1] = ip(i);
+        }
+        server.writeAddresses(pairs);
+        connection = server.connect();
+        channel = connection.getChannelSftp();
+    }
+
+    @AfterMethod
+    public void tearDown() throws IOException {
+        connection.disconnect();
+        server.close();
+    }
+
+    private static String domain(int i) {
+        return "host-" + i + ".example.com";
+    }
+
+    private static String ip(int i) {
+        return "10.0.0." + i;
+    }
+
+    // Имена всех файлов и каталогов в корне сервера
+    private List<String> serverFiles() throws IOException {
+        try (Stream<Path> files = Files.list(server.getRoot())) {
+            return files.map(path -> path.getFileName().toString()).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private DomainIPIndex readServerFile(String fileName) throws IOException {
+        DomainIPIndex.Builder builder = new DomainIPIndex.Builder();
+        byte[] content = server.read(fileName).getBytes(StandardCharsets.UTF_8);
+        AddressesJsonParser.parse(new ByteArrayInputStream(content), builder::add);
+        return builder.build();
+    }
+
+    @Test (description = "Проверка разделения одного файла на 3 шарда и обратного объединения")
+    public void testReshardRoundTrip() throws Exception {
+        SFTPClient.reshard(channel, 3);
+        List<String> files = serverFiles();
+        Assert.assertEquals(files.size(), 3, "На сервере должны остаться только файлы шардов: " + files);
+        int total = 0;
+        for (int s = 0; s < 3; s++) {
+            String fileName = ShardSet.fileName("addresses", s, 3, false);
+            Assert.assertTrue(files.contains(fileName), "Должен быть записан шард " + fileName);
+            DomainIPIndex shard = readServerFile(fileName);
+            for (int i = 0; i < shard.size(); i++) {
+                Assert.assertEquals(ShardSet.shardOf(shard.domainAt(i), 3), s,
+                        "Пара " + shard.domainAt(i) + " должна попасть в шард по хэшу domain");
+            }
+            total += shard.size();
+        }
+        Assert.assertEquals(total, PAIRS, "Все пары должны быть распределены по шардам");
+        for (int i = 0; i < PAIRS; i++) {
+            Assert.assertEquals(SFTPClient.getIPByDomain(channel, domain(i)), ip(i),
+                    "Пара " + domain(i) + " должна находиться после разделения");
+        }
+
+        SFTPClient.reshard(channel, 1);
+        files = serverFiles();
+        Assert.assertEquals(files.size(), 1, "После объединения не должно остаться шардов и временных файлов: " + files);
+        Assert.assertEquals(files.get(0), EmbeddedSftpServer.FILE_NAME, "Пары должны быть объединены в addresses.json");
+        DomainIPIndex merged = readServerFile(EmbeddedSftpServer.FILE_NAME);
+        Assert.assertEquals(merged.size(), PAIRS, "После объединения должны сохраниться все пары");
+        for (int i = 0; i < PAIRS; i++) {
+            Assert.assertEquals(merged.getIP(domain(i)), ip(i), "Пара " + domain(i) + " должна сохраниться");
+            Assert.assertEquals(SFTPClient.getIPByDomain(channel, domain(i)), ip(i),
+                    "Пара " + domain(i) + " должна находиться после объединения");
+        }
+    }
+
+    @Test (description = "Проверка шардов через stat без запроса списка каталога")
+    public void testShardsRevalidatedWithoutListing() throws Exception {
+        SFTPClient.reshard(channel, 3);
+        Assert.assertEquals(SFTPClient.getIPByDomain(channel, domain(0)), ip(0), "Первая загрузка шардов");
+
+        SftpMetrics metrics = SftpMetrics.get();
+        long lists = metrics.histogram(SftpMetrics.Phase.LIST).getCount();
+        for (int i = 0; i < PAIRS; i++) {
+            SFTPClient.getIPByDomain(channel, domain(i));
+        }
+        // изменение одного шарда другим клиентом загружается без списка каталога
+        String fileName = ShardSet.fileName("addresses", ShardSet.shardOf(domain(1), 3), 3, false);
+        server.write(fileName, server.read(fileName).replace(ip(1), "192.168.1.1"));
+        server.touch(fileName);
+        Assert.assertEquals(SFTPClient.getIPByDomain(channel, domain(1)), "192.168.1.1",
+                "Измененный шард должен быть загружен заново");
+        Assert.assertEquals(metrics.histogram(SftpMetrics.Phase.LIST).getCount(), lists,
+                "Пока файлы шардов на месте, список каталога не должен запрашиваться");
+
+        // после объединения файлы шардов пропадают, и файл данных находится по списку каталога
+        SFTPClient.reshard(channel, 1);
+        Assert.assertEquals(SFTPClient.getIPByDomain(channel, domain(1)), "192.168.1.1",
+                "Объединенный файл должен содержать изменение шарда");
+    }
+}
@@ -38,11 +38,16 @@ public class SFTPClientTest {
         }
     }
 
-    @BeforeMethod
+    // одно подключение на все тесты: рукопожатие SSH выполняется один раз
+    @BeforeClass(dependsOnMethods = "loadConfig")
     public void setUp() throws JSchException {
         sftpConnection = new SFTPConnection();
         sftpConnection.connect(host, port, username, password);
-        channelSftp = sftpConnection.getChannelSftp();
+    }
+
+    @BeforeMethod
+    public void openChannel() throws JSchException {
+        channelSftp = sftpConnection.ensureConnected();
     }
 
     @Test (description = "Проверка успешного подключения к SFTP-серверу")
@@ -199,7 +204,7 @@ public class SFTPClientTest {
         assertEquals(domainAfterDeleteByIP, "IP не найден!", "IP should be deleted");
     }
 
-    @AfterMethod
+    @AfterClass
     public void tearDown() {
         sftpConnection.disconnect();
     }
@@ -0,0 +1,170 @@
+package com.example;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.SftpException;
+import org.example.SFTPConnectionPool;
+import org.testng.Assert;
+import org.testng.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.*;
+import java.util.function.BooleanSupplier;
+
+public class SFTPConnectionPoolTest {
+
+    private EmbeddedSftpServer server;
+    private SFTPConnectionPool pool;
+    private ExecutorService executor;
+
+    @BeforeClass
+    public void startServer() throws IOException {
+        server = new EmbeddedSftpServer();
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterClass
+    public void stopServer() throws IOException {
+        executor.shutdownNow();
+        server.close();
+    }
+
+    @AfterMethod
+    public void closePool() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
+    }
+
+    private SFTPConnectionPool createPool(int minSessions, int maxSessions, int channelsPerSession,
+                                          long idleTimeoutMillis, long borrowTimeoutMillis) throws JSchException {
+        pool = new SFTPConnectionPool(server::connect, minSessions, maxSessions, channelsPerSession,
+                idleTimeoutMillis, borrowTimeoutMillis);
+        return pool;
+    }
+
+    // ожидание условия, которое выполняется в фоновом потоке пула или сервера
+    private static boolean waitUntil(BooleanSupplier condition, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                return false;
+            }
+            Thread.sleep(50);
+        }
+        return true;
+    }
+
+    @Test (description = "Проверка выдачи и возврата канала: возвращенный канал выдается повторно")
+    public void testBorrowAndRelease() throws JSchException, SftpException {
+        createPool(1, 2, 2, 60_000, 5_000);
+        ChannelSftp channel = pool.borrow();
+        Assert.assertTrue(channel.isConnected(), "Выданный канал должен быть подключен");
+        Assert.assertEquals(channel.realpath("."), "/", "Канал должен выполнять запросы к серверу");
+        pool.release(channel);
+
+        ChannelSftp again = pool.borrow();
+        Assert.assertSame(again, channel, "Простаивающий канал должен переиспользоваться");
+        pool.release(again);
+        Assert.assertEquals(server.activeSessions(), 1, "Для одного канала достаточно одной сессии");
+    }
+
+    @Test (description = "Проверка открытия нескольких каналов в одной сессии")
+    public void testChannelsShareSession() throws JSchException {
+        createPool(0, 2, 2, 60_000, 5_000);
+        ChannelSftp first = pool.borrow();
+        ChannelSftp second = pool.borrow();
+        Assert.assertNotSame(second, first, "Двум потокам должны выдаваться разные каналы");
+        Assert.assertEquals(server.activeSessions(), 1, "Второй канал должен открываться в уже открытой сессии");
+
+        ChannelSftp third = pool.borrow();
+        Assert.assertEquals(server.activeSessions(), 2, "Когда сессия заполнена, открывается новая");
+        pool.release(first);
+        pool.release(second);
+        pool.release(third);
+    }
+
+    @Test (description = "Проверка ожидания канала, когда достигнуто максимальное число сессий")
+    public void testBorrowBlocksWhenExhausted() throws Exception {
+        createPool(0, 1, 1, 60_000, 5_000);
+        ChannelSftp channel = pool.borrow();
+        Future<ChannelSftp> waiting = executor.submit(pool::borrow);
+        Thread.sleep(300);
+        Assert.assertFalse(waiting.isDone(), "Пока канал занят, второй поток должен ждать");
+
+        pool.release(channel);
+        ChannelSftp next = waiting.get(5, TimeUnit.SECONDS);
+        Assert.assertSame(next, channel, "Ожидающий поток должен получить возвращенный канал");
+        Assert.assertEquals(server.activeSessions(), 1, "Число сессий не должно превышать максимум");
+        pool.release(next);
+    }
+
+    @Test (description = "Проверка ошибки по таймауту ожидания канала")
+    public void testBorrowTimeout() throws JSchException {
+        createPool(0, 1, 1, 60_000, 300);
+        ChannelSftp channel = pool.borrow();
+        long start = System.currentTimeMillis();
+        Assert.expectThrows(JSchException.class, pool::borrow);
+        Assert.assertTrue(System.currentTimeMillis() - start >= 250, "Ошибка должна возникать только после таймаута");
+        pool.release(channel);
+
+        ChannelSftp next = pool.borrow();
+        Assert.assertSame(next, channel, "После таймаута пул должен продолжать работать");
+        pool.release(next);
+    }
+
+    @Test (description = "Проверка проверки простаивающего канала запросом realpath перед выдачей")
+    public void testIdleChannelValidated() throws Exception {
+        createPool(1, 1, 1, 60_000, 5_000);
+        pool.setValidationInterval(0);
+        ChannelSftp channel = pool.borrow();
+        pool.release(channel);
+        Assert.assertSame(pool.borrow(), channel, "Исправный канал должен пройти проверку");
+        pool.release(channel);
+
+        // канал и сессия открыты, но запрос realpath завершается ошибкой
+        server.setFailing(true);
+        ChannelSftp next;
+        try {
+            next = pool.borrow();
+        } finally {
+            server.setFailing(false);
+        }
+        Assert.assertNotSame(next, channel, "Канал, не прошедший проверку, должен быть заменен");
+        Assert.assertFalse(channel.isConnected(), "Канал, не прошедший проверку, должен быть закрыт");
+        Assert.assertEquals(next.realpath("."), "/", "Новый канал должен выполнять запросы к серверу");
+        pool.release(next);
+    }
+
+    @Test (description = "Проверка закрытия сессий, простаивающих дольше таймаута")
+    public void testIdleSessionsEvicted() throws Exception {
+        createPool(0, 2, 1, 200, 5_000);
+        ChannelSftp first = pool.borrow();
+        ChannelSftp second = pool.borrow();
+        Assert.assertEquals(server.activeSessions(), 2, "Для двух каналов должны быть открыты две сессии");
+        pool.release(first);
+        pool.release(second);
+
+        Assert.assertTrue(waitUntil(() -> server.activeSessions() == 0, 10_000),
+                "Простаивающие сессии сверх минимума должны закрываться");
+        ChannelSftp next = pool.borrow();
+        Assert.assertTrue(next.isConnected(), "После вытеснения пул должен открывать новые сессии");
+        pool.release(next);
+    }
+
+    @Test (description = "Проверка восстановления минимального числа сессий после обрыва")
+    public void testSessionsReplenished() throws Exception {
+        createPool(1, 2, 1, 2_000, 5_000);
+        Assert.assertEquals(server.activeSessions(), 1, "Минимальная сессия должна открываться при создании пула");
+
+        server.closeSessions();
+        Assert.assertTrue(waitUntil(() -> server.activeSessions() == 0, 5_000), "Сессия должна быть разорвана");
+        Assert.assertTrue(waitUntil(() -> server.activeSessions() == 1, 10_000),
+                "Пул должен восстановить минимальное число сессий");
+
+        ChannelSftp channel = pool.borrow();
+        Assert.assertEquals(channel.realpath("."), "/", "Восстановленная сессия должна выполнять запросы");
+        pool.release(channel);
+    }
+}
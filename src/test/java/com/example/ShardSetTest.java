@@ -0,0 +1,193 @@
+package com.example;
+
+import org.example.DomainIPIndex;
+import org.example.ShardSet;
+import org.testng.Assert;
+import org.testng.annotations.*;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class ShardSetTest {
+
+    private static final int SHARDS = 3;
+    private static final int PAIRS = 30;
+
+    // Набор из SHARDS шардов, кэши которых содержат пары host-i.example.com / 10.0.0.i по шардам CRC32
+    private static ShardSet loadedShards() {
+        Map<String, Integer> files = new LinkedHashMap<>();
+        for (int i = 0; i < SHARDS; i++) {
+            files.put(ShardSet.fileName("addresses", i, SHARDS, false), 100);
+        }
+        ShardSet shards = ShardSet.detect("test", files, false);
+        DomainIPIndex.Builder[] builders = new DomainIPIndex.Builder[SHARDS];
+        for (int s = 0; s < SHARDS; s++) {
+            builders[s] = new DomainIPIndex.Builder();
+        }
+        for (int i = 0; i < PAIRS; i++) {
+            String domain = "host-" + i + ".example.com";
+            builders[ShardSet.shardOf(domain, SHARDS)].add(domain, "10.0.0." + i);
+        }
+        for (int s = 0; s < SHARDS; s++) {
+            shards.cache(s).update(shards.fileName(s), 100, 0, builders[s].build(), null);
+        }
+        return shards;
+    }
+
+    // Применение результата split к кэшам шардов, как после записи файлов на сервер
+    private static void apply(ShardSet shards, DomainIPIndex[] parts) {
+        for (int s = 0; s < parts.length; s++) {
+            if (parts[s] != null) {
+                shards.cache(s).update(shards.fileName(s), 101, 0, parts[s], null);
+            }
+        }
+    }
+
+    @Test (description = "Проверка имени файла шарда")
+    public void testFileName() {
+        Assert.assertEquals(ShardSet.fileName("addresses", 3, 8, false), "addresses-00003-of-00008.json",
+                "Номер и число шардов должны дополняться нулями до 5 цифр");
+        Assert.assertEquals(ShardSet.fileName("addresses", 0, 2, true), "addresses-00000-of-00002.json.gz",
+                "Сжатый шард должен иметь расширение .json.gz");
+    }
+
+    @Test (description = "Проверка общего имени набора шардов")
+    public void testBaseName() {
+        Assert.assertEquals(ShardSet.baseName("addresses-00003-of-00008.json"), "addresses",
+                "Имя набора должно отделяться от номера шарда");
+        Assert.assertEquals(ShardSet.baseName("my-data-00000-of-00002.JSON.gz"), "my-data",
+                "Дефисы в имени и регистр расширения не должны мешать разбору");
+        Assert.assertNull(ShardSet.baseName("addresses.json"), "Обычный json-файл не является шардом");
+        Assert.assertNull(ShardSet.baseName(".addresses-00003-of-00008.json.0f1e.tmp"),
+                "Временный файл не является шардом");
+    }
+
+    @Test (description = "Проверка распределения по CRC32 от domain в нижнем регистре")
+    public void testShardOfIsCrc32OfLowerCaseDomain() {
+        // распределение должно совпадать с другими инструментами: CRC32 от domain в нижнем регистре
+        Assert.assertEquals(ShardSet.shardOf("example.com", 8), 1, "CRC32(example.com) mod 8");
+        Assert.assertEquals(ShardSet.shardOf("Example.COM", 8), 1, "Регистр domain не должен влиять на шард");
+        Assert.assertEquals(ShardSet.shardOf("example.com", 5), 0, "CRC32(example.com) mod 5");
+        Assert.assertEquals(ShardSet.shardOf("example.com", 1), 0, "При одном шарде все пары попадают в него");
+    }
+
+    @Test (description = "Проверка равномерности распределения по шардам")
+    public void testShardOfInRange() {
+        int[] counts = new int[7];
+        for (int i = 0; i < 7000; i++) {
+            counts[ShardSet.shardOf("host-" + i + ".example.com", 7)]++;
+        }
+        for (int count : counts) {
+            Assert.assertTrue(count > 700 && count < 1300, "Неравномерное распределение: " + count);
+        }
+    }
+
+    @Test (description = "Проверка поиска полного набора шардов в списке файлов")
+    public void testDetect() {
+        Map<String, Integer> files = new LinkedHashMap<>();
+        files.put("addresses.json", 300);
+        files.put(".addresses-00000-of-00002.json.0f1e.tmp", 300);
+        for (int i = 0; i < 4; i++) {
+            files.put(ShardSet.fileName("addresses", i, 4, false), 100);
+        }
+        // неполный набор не используется, даже если он новее
+        files.put(ShardSet.fileName("addresses", 0, 2, false), 200);
+
+        ShardSet shards = ShardSet.detect("test", files, false);
+        Assert.assertNotNull(shards, "Полный набор из 4 шардов должен быть найден");
+        Assert.assertEquals(shards.size(), 4, "Неполный набор из 2 шардов не должен использоваться");
+        for (int i = 0; i < 4; i++) {
+            Assert.assertEquals(shards.fileName(i), ShardSet.fileName("addresses", i, 4, false),
+                    "Файлы набора должны идти в порядке номеров");
+        }
+
+        files.put(ShardSet.fileName("addresses", 1, 2, false), 150);
+        Assert.assertEquals(ShardSet.detect("test", files, false).size(), 2,
+                "Из нескольких полных наборов должен выбираться самый свежий");
+
+        Assert.assertNull(ShardSet.detect("test", Collections.singletonMap("addresses.json", 100), false),
+                "Без шардов набор не должен находиться");
+    }
+
+    @Test (description = "Проверка выбора сжатого или обычного набора при одинаковом времени изменения")
+    public void testDetectPrefersCompression() {
+        Map<String, Integer> files = new LinkedHashMap<>();
+        for (int i = 0; i < 2; i++) {
+            files.put(ShardSet.fileName("addresses", i, 2, false), 100);
+            files.put(ShardSet.fileName("addresses", i, 2, true), 100);
+        }
+        Assert.assertTrue(ShardSet.detect("test", files, true).fileName(0).endsWith(".gz"),
+                "При preferCompressed должен выбираться сжатый набор");
+        Assert.assertFalse(ShardSet.detect("test", files, false).fileName(0).endsWith(".gz"),
+                "Без preferCompressed должен выбираться обычный набор");
+    }
+
+    @Test (description = "Проверка объединения шардов в один индекс")
+    public void testMerge() {
+        ShardSet shards = loadedShards();
+        DomainIPIndex merged = shards.merge();
+        Assert.assertEquals(merged.size(), PAIRS, "Объединенный индекс должен содержать пары всех шардов");
+        int previous = 0;
+        for (int i = 0; i < merged.size(); i++) {
+            int shard = ShardSet.shardOf(merged.domainAt(i), SHARDS);
+            Assert.assertTrue(shard >= previous, "Записи шардов должны идти подряд в порядке номеров");
+            previous = shard;
+        }
+        for (int i = 0; i < PAIRS; i++) {
+            Assert.assertEquals(merged.getIP("host-" + i + ".example.com"), "10.0.0." + i,
+                    "Пара host-" + i + ".example.com должна быть в объединенном индексе");
+        }
+    }
+
+    @Test (description = "Проверка разделения без изменений: ни один шард не перезаписывается")
+    public void testSplitUnchanged() {
+        ShardSet shards = loadedShards();
+        DomainIPIndex merged = shards.merge();
+        DomainIPIndex[] parts = shards.split(merged, merged);
+        for (int s = 0; s < SHARDS; s++) {
+            Assert.assertNull(parts[s], "Неизмененный шард " + s + " не должен перезаписываться");
+        }
+    }
+
+    @Test (description = "Проверка разделения и повторного объединения после добавления, изменения и удаления пар")
+    public void testSplitMergeRoundTrip() {
+        ShardSet shards = loadedShards();
+        DomainIPIndex merged = shards.merge();
+        String added = "new.example.com";
+        String changed = "host-0.example.com";
+        String removed = "host-1.example.com";
+        DomainIPIndex.Builder builder = new DomainIPIndex.Builder();
+        for (int i = 0; i < merged.size(); i++) {
+            String domain = merged.domainAt(i);
+            if (domain.equals(changed)) {
+                builder.add(domain, "192.168.0.1");
+            } else if (!domain.equals(removed)) {
+                builder.add(domain, merged.ipAt(i));
+            }
+        }
+        builder.add(added, "192.168.0.2");
+        DomainIPIndex updated = builder.build();
+
+        DomainIPIndex[] parts = shards.split(merged, updated);
+        for (int s = 0; s < SHARDS; s++) {
+            boolean expected = s == ShardSet.shardOf(added, SHARDS) || s == ShardSet.shardOf(changed, SHARDS)
+                    || s == ShardSet.shardOf(removed, SHARDS);
+            Assert.assertEquals(parts[s] != null, expected, "Перезаписываться должны только измененные шарды: " + s);
+        }
+        Assert.assertEquals(parts[ShardSet.shardOf(added, SHARDS)].getIP(added), "192.168.0.2",
+                "Новая пара должна попасть в шард по хэшу domain");
+
+        apply(shards, parts);
+        DomainIPIndex result = shards.merge();
+        Assert.assertEquals(result.size(), updated.size(), "После объединения должны остаться все пары");
+        for (int i = 0; i < updated.size(); i++) {
+            Assert.assertEquals(result.getIP(updated.domainAt(i)), updated.ipStringAt(i),
+                    "Пара " + updated.domainAt(i) + " должна сохраниться после разделения");
+        }
+        Assert.assertNull(result.getIP(removed), "Удаленная пара не должна вернуться");
+        for (DomainIPIndex part : shards.split(result, result)) {
+            Assert.assertNull(part, "Повторное разделение без изменений не должно перезаписывать шарды");
+        }
+    }
+}
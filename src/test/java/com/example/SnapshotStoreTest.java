@@ -0,0 +1,90 @@
+package com.example;
+
+import org.example.DomainIPIndex;
+import org.example.IndexSnapshot;
+import org.example.PairCache;
+import org.example.SnapshotStore;
+import org.testng.Assert;
+import org.testng.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class SnapshotStoreTest {
+
+    private static final String KEY = "user@127.0.0.1:22/home/user";
+
+    private Path directory;
+    private SnapshotStore store;
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("snapshot-store-test");
+        store = new SnapshotStore(directory);
+    }
+
+    @AfterMethod
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(path -> path.toFile().delete());
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    private PairCache cache(String domain, String ip) {
+        DomainIPIndex.Builder builder = new DomainIPIndex.Builder();
+        builder.add(domain, ip);
+        PairCache cache = new PairCache(KEY);
+        cache.update("addresses.json", 1700000000, 100, builder.build(), null);
+        return cache;
+    }
+
+    // Ожидание завершения фоновых записей: задачи выполняются по порядку в одном потоке
+    private void awaitSaved() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        store.execute(latch::countDown);
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS), "Фоновая запись снимка должна завершиться");
+    }
+
+    private long snapshotFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.toString().endsWith(".idx")).count();
+        }
+    }
+
+    @Test (description = "Проверка записи нового снимка в новый файл, пока прежний отображен в память")
+    public void testSaveWhileMapped() throws Exception {
+        store.save(cache("first.domain", "192.168.0.1"));
+        awaitSaved();
+        IndexSnapshot first = store.open(KEY);
+        Assert.assertNotNull(first, "Сохраненный снимок должен открываться");
+
+        store.save(cache("first.domain", "10.0.0.1"));
+        awaitSaved();
+        Assert.assertEquals(first.getIP("first.domain"), "192.168.0.1", "Отображенный снимок не должен меняться");
+        Assert.assertEquals(store.open(KEY).getIP("first.domain"), "10.0.0.1", "Должна открываться новая версия");
+        Assert.assertEquals(snapshotFiles(), 1, "Прежняя версия должна удаляться");
+    }
+
+    @Test (description = "Проверка перехода к предыдущей версии, если новая повреждена")
+    public void testFallbackToPreviousVersion() throws Exception {
+        store.save(cache("first.domain", "192.168.0.1"));
+        awaitSaved();
+        String saved;
+        try (Stream<Path> files = Files.list(directory)) {
+            saved = files.map(path -> path.getFileName().toString()).collect(Collectors.joining());
+        }
+        String broken = saved.substring(0, saved.lastIndexOf('.', saved.length() - 5) + 1) + "99999999999999.idx";
+        Files.write(directory.resolve(broken), new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9});
+
+        IndexSnapshot snapshot = store.open(KEY);
+        Assert.assertNotNull(snapshot, "Должна открываться последняя читаемая версия");
+        Assert.assertEquals(snapshot.getIP("first.domain"), "192.168.0.1", "Данные предыдущей версии");
+        Assert.assertNull(new SnapshotStore(directory).open("other@127.0.0.1:22/"), "Снимки другого ключа не должны открываться");
+    }
+}
@@ -0,0 +1,83 @@
+package com.example;
+
+import com.jcraft.jsch.ChannelSftp;
+import org.example.SFTPConnection;
+import org.example.WriteLock;
+import org.testng.Assert;
+import org.testng.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.*;
+
+public class WriteLockTest {
+
+    private static final String LOCK = ".sftp-client.lock";
+    // mtime на сервере меняется раз в секунду, поэтому меньшее время устаревания проверить нельзя
+    private static final long STALE_MILLIS = 3_000;
+
+    private EmbeddedSftpServer server;
+    private SFTPConnection first;
+    private SFTPConnection second;
+    private ExecutorService executor;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        server = new EmbeddedSftpServer();
+        first = server.connect();
+        second = server.connect("localhost");
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @AfterMethod
+    public void tearDown() throws IOException {
+        executor.shutdownNow();
+        first.disconnect();
+        second.disconnect();
+        server.close();
+    }
+
+    @Test (description = "Проверка, что удерживаемая дольше времени устаревания блокировка не снимается другим клиентом")
+    public void testHeldLockIsNotBroken() throws Exception {
+        ChannelSftp channel = first.getChannelSftp();
+        WriteLock lock = WriteLock.acquire(channel, LOCK, STALE_MILLIS);
+        Future<WriteLock> waiting = executor.submit(() -> WriteLock.acquire(second.getChannelSftp(), LOCK, STALE_MILLIS));
+        try {
+            waiting.get(2 * STALE_MILLIS, TimeUnit.MILLISECONDS);
+            Assert.fail("Блокировка владельца, который обновляет ее, не должна сниматься");
+        } catch (TimeoutException expected) {
+            // второй клиент продолжает ждать
+        }
+        lock.release(channel);
+        WriteLock next = waiting.get(5, TimeUnit.SECONDS);
+        Assert.assertTrue(Files.isDirectory(server.getRoot().resolve(LOCK)), "Второй клиент должен получить блокировку после снятия");
+        next.release(second.getChannelSftp());
+        Assert.assertFalse(Files.exists(server.getRoot().resolve(LOCK)), "После снятия каталог блокировки должен быть удален");
+    }
+
+    @Test (description = "Проверка снятия блокировки, оставленной упавшим клиентом")
+    public void testAbandonedLockIsBroken() throws Exception {
+        Path lock = Files.createDirectory(server.getRoot().resolve(LOCK));
+        Files.write(lock.resolve("owner"), "crashed".getBytes());
+
+        long start = System.currentTimeMillis();
+        WriteLock acquired = WriteLock.acquire(first.getChannelSftp(), LOCK, STALE_MILLIS);
+        long waited = System.currentTimeMillis() - start;
+        Assert.assertTrue(waited >= STALE_MILLIS, "Блокировка не должна сниматься раньше времени устаревания: " + waited);
+        Assert.assertNotEquals(server.read(LOCK + "/owner"), "crashed", "В каталоге блокировки должен быть новый владелец");
+        acquired.release(first.getChannelSftp());
+        Assert.assertFalse(Files.exists(lock), "После снятия каталог блокировки должен быть удален");
+    }
+
+    @Test (description = "Проверка, что клиент не снимает блокировку, которой уже владеет другой клиент")
+    public void testReleaseKeepsForeignLock() throws Exception {
+        ChannelSftp channel = first.getChannelSftp();
+        WriteLock lock = WriteLock.acquire(channel, LOCK, STALE_MILLIS);
+        // блокировку сняли как оставленную, и ее захватил другой клиент
+        server.write(LOCK + "/owner", "other");
+        lock.release(channel);
+        Assert.assertTrue(Files.isDirectory(server.getRoot().resolve(LOCK)), "Чужая блокировка не должна удаляться");
+        Assert.assertEquals(server.read(LOCK + "/owner"), "other", "Токен другого клиента должен сохраниться");
+    }
+}